@@ -0,0 +1,60 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import com.fitness.app.service.SyntheticWorksheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the exercise messages of one /training answer, from scratch and through
+ * {@link RenderedPlanCache} with an unchanged plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExerciseMessageBenchmark {
+
+    @Param({"1", "10", "30"})
+    private int exercises;
+
+    private List<Exercise> plan;
+    private RenderedPlanCache renderedPlans;
+
+    @Setup
+    public void createPlan() {
+        plan = SyntheticWorksheet.exercises(exercises);
+        renderedPlans = new RenderedPlanCache();
+        renderedPlans.messages("benchmark", plan);
+    }
+
+    @Benchmark
+    public void renderPlan(Blackhole blackhole) {
+        for (int i = 0; i < plan.size(); i++) {
+            blackhole.consume(ExerciseMessageFormatter.format(i + 1, plan.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void renderCachedPlan(Blackhole blackhole) {
+        List<String> messages = renderedPlans.messages("benchmark", plan);
+        for (int i = 0; i < messages.size(); i++) {
+            blackhole.consume(messages.get(i));
+        }
+    }
+}
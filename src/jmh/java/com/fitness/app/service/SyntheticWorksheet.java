@@ -0,0 +1,57 @@
+package com.fitness.app.service;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates worksheet payloads shaped like a coach's plan: two header rows, exercises in
+ * columns C-J and extra history columns to the right.
+ */
+public final class SyntheticWorksheet {
+
+    private SyntheticWorksheet() {
+    }
+
+    public static String csv(int rows, int columns) {
+        StringBuilder csv = new StringBuilder(rows * columns * 12);
+        for (int row = 1; row <= rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) {
+                    csv.append(',');
+                }
+                csv.append('"').append(cell(row, column)).append('"');
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    public static List<Exercise> exercises(int count) {
+        List<Exercise> exercises = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int row = i + GoogleSheetsService.FIRST_EXERCISE_ROW;
+            exercises.add(new Exercise(row, cell(row, 2), cell(row, 3), cell(row, 4), cell(row, 5),
+                cell(row, 6), cell(row, 7), cell(row, 8), cell(row, 9)));
+        }
+        return exercises;
+    }
+
+    private static String cell(int row, int column) {
+        if (row < GoogleSheetsService.FIRST_EXERCISE_ROW) {
+            return "Header " + column;
+        }
+        return switch (column) {
+            case 2 -> row % 7 == 0 ? "" : "Приседания со штангой " + row;
+            case 3 -> (40 + row % 60) + " кг";
+            case 4 -> String.valueOf(3 + row % 3);
+            case 5 -> String.valueOf(6 + row % 6);
+            case 6 -> "1-2";
+            case 7 -> "2 мин";
+            case 8 -> row % 3 == 0 ? "https://youtu.be/example" + row : "";
+            case 9 -> row % 4 == 0 ? "Следить за техникой, \"без рывков\"".replace("\"", "\"\"") : "";
+            default -> "неделя " + column + ": " + (50 + column) + "x" + (row % 10);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.fitness.app.service;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming exercise parser with parsing the full row matrix first and projecting
+ * columns C-J afterwards, on synthetic gviz CSV exports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorksheetParsingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    @Param({"12", "40"})
+    private int columns;
+
+    private byte[] csv;
+
+    @Setup
+    public void generatePayload() {
+        csv = SyntheticWorksheet.csv(rows, columns).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Exercise> streamingExercises() throws IOException {
+        return GoogleSheetsService.parseExercises(reader());
+    }
+
+    @Benchmark
+    public List<Exercise> matrixThenProject() throws IOException {
+        List<List<String>> matrix = GoogleSheetsService.parseWorksheet(reader());
+        List<Exercise> exercises = new ArrayList<>();
+        for (int rowIndex = GoogleSheetsService.FIRST_EXERCISE_ROW - 1; rowIndex < matrix.size(); rowIndex++) {
+            List<String> row = matrix.get(rowIndex);
+            String name = cell(row, 2);
+            if (name.isBlank()) {
+                continue;
+            }
+            exercises.add(new Exercise(rowIndex + 1, name, cell(row, 3), cell(row, 4), cell(row, 5),
+                cell(row, 6), cell(row, 7), cell(row, 8), cell(row, 9)));
+        }
+        return exercises;
+    }
+
+    @Benchmark
+    public List<List<String>> fullMatrix() throws IOException {
+        return GoogleSheetsService.parseWorksheet(reader());
+    }
+
+    private InputStreamReader reader() {
+        return new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8);
+    }
+
+    private static String cell(List<String> row, int index) {
+        return index < row.size() ? row.get(index) : "";
+    }
+}
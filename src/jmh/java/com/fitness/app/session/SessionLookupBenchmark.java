@@ -0,0 +1,91 @@
+package com.fitness.app.session;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.SyntheticWorksheet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reply resolution under concurrent access: looking up which exercise a replied-to message
+ * shows, for the session store and for the per-chat boxed maps it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SessionLookupBenchmark {
+
+    private static final int EXERCISES = 12;
+    private static final int FIRST_MESSAGE_ID = 1_000;
+
+    @Param({"100", "10000"})
+    private int chats;
+
+    private InMemorySessionStore store;
+    private ConcurrentMap<String, ConcurrentMap<Integer, Integer>> boxedLookup;
+    private String[] chatIds;
+
+    @Setup
+    public void createSessions() {
+        TelegramBotProperties properties = new TelegramBotProperties();
+        properties.getSessions().setMaxSessions(chats);
+        properties.getSessions().setSnapshotPath("");
+        store = new InMemorySessionStore(properties, new SimpleMeterRegistry());
+        boxedLookup = new ConcurrentHashMap<>();
+        chatIds = new String[chats];
+        for (int chat = 0; chat < chats; chat++) {
+            String chatId = String.valueOf(100_000 + chat);
+            chatIds[chat] = chatId;
+            store.startSession(chatId, SyntheticWorksheet.exercises(EXERCISES));
+            ConcurrentMap<Integer, Integer> messages = new ConcurrentHashMap<>();
+            for (int exercise = 1; exercise <= EXERCISES; exercise++) {
+                store.linkMessage(chatId, FIRST_MESSAGE_ID + exercise, exercise);
+                messages.put(FIRST_MESSAGE_ID + exercise, exercise);
+            }
+            boxedLookup.put(chatId, messages);
+        }
+    }
+
+    @Benchmark
+    public int sessionStoreLookup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String chatId = chatIds[random.nextInt(chats)];
+        int messageId = FIRST_MESSAGE_ID + 1 + random.nextInt(EXERCISES);
+        return store.exerciseNumberForMessage(chatId, messageId);
+    }
+
+    @Benchmark
+    public Integer boxedMapLookup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String chatId = chatIds[random.nextInt(chats)];
+        int messageId = FIRST_MESSAGE_ID + 1 + random.nextInt(EXERCISES);
+        ConcurrentMap<Integer, Integer> messages = boxedLookup.get(chatId);
+        return messages == null ? null : messages.get(messageId);
+    }
+
+    @Benchmark
+    public boolean markCompleted() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String chatId = chatIds[random.nextInt(chats)];
+        return store.markCompleted(chatId, 1 + random.nextInt(EXERCISES));
+    }
+}
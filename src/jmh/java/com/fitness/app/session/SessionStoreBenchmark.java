@@ -0,0 +1,116 @@
+package com.fitness.app.session;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import com.fitness.app.service.SyntheticWorksheet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latency of the session operations on each backend: what one bot update pays for keeping
+ * sessions in a shared SQLite file instead of process memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SessionStoreBenchmark {
+
+    private static final int CHATS = 1_000;
+    private static final int EXERCISES = 12;
+    private static final int FIRST_MESSAGE_ID = 1_000;
+
+    @Param({"memory", "sqlite"})
+    private String backend;
+
+    private SessionStore store;
+    private Path directory;
+    private List<Exercise> plan;
+
+    @Setup
+    public void createSessions() throws IOException {
+        TelegramBotProperties properties = new TelegramBotProperties();
+        properties.getSessions().setMaxSessions(CHATS * 2);
+        properties.getSessions().setSnapshotPath("");
+        if (backend.equals("sqlite")) {
+            directory = Files.createTempDirectory("session-benchmark");
+            properties.getSessions().setSqlitePath(directory.resolve("sessions.db").toString());
+            store = new SqliteSessionStore(properties, new SimpleMeterRegistry());
+        } else {
+            store = new InMemorySessionStore(properties, new SimpleMeterRegistry());
+        }
+        plan = SyntheticWorksheet.exercises(EXERCISES);
+        for (int chat = 0; chat < CHATS; chat++) {
+            String chatId = chatId(chat);
+            store.startSession(chatId, plan);
+            for (int exercise = 1; exercise <= EXERCISES; exercise++) {
+                store.linkMessage(chatId, FIRST_MESSAGE_ID + exercise, exercise);
+            }
+        }
+    }
+
+    @TearDown
+    public void deleteDatabase() throws IOException {
+        if (store instanceof SqliteSessionStore sqlite) {
+            sqlite.close();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int replyLookup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return store.exerciseNumberForMessage(chatId(random.nextInt(CHATS)), FIRST_MESSAGE_ID + 1 + random.nextInt(EXERCISES));
+    }
+
+    @Benchmark
+    public Exercise exerciseLookup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return store.findExercise(chatId(random.nextInt(CHATS)), 1 + random.nextInt(EXERCISES)).orElse(null);
+    }
+
+    @Benchmark
+    public boolean markCompleted() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return store.markCompleted(chatId(random.nextInt(CHATS)), 1 + random.nextInt(EXERCISES));
+    }
+
+    @Benchmark
+    public void startSession() {
+        store.startSession(chatId(ThreadLocalRandom.current().nextInt(CHATS)), plan);
+    }
+
+    private static String chatId(int chat) {
+        return String.valueOf(100_000 + chat);
+    }
+}
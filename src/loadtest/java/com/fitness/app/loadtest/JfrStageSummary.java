@@ -0,0 +1,101 @@
+package com.fitness.app.loadtest;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarises the stage events of a flight recording taken through
+ * {@code /actuator/flightrecording}: count, latency percentiles and errors per stage, and how
+ * many of the stage's events overlapped a GC pause or a safepoint, with the share of their time
+ * spent in those pauses.
+ * <p>
+ * Options are system properties: {@code jfr.file} (the {@code .jfr} file, required).
+ */
+public final class JfrStageSummary {
+
+    private static final String EVENT_PREFIX = "com.fitness.";
+
+    public static void main(String[] args) throws Exception {
+        String file = System.getProperty("jfr.file");
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("Pass the recording with -Pjfr.file=path/to/recording.jfr");
+        }
+        Map<String, List<RecordedEvent>> stages = new TreeMap<>();
+        List<Pause> pauses = new ArrayList<>();
+        try (RecordingFile recording = new RecordingFile(Path.of(file))) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String type = event.getEventType().getName();
+                if (type.startsWith(EVENT_PREFIX)) {
+                    stages.computeIfAbsent(event.getString("stage"), key -> new ArrayList<>()).add(event);
+                } else if (type.equals("jdk.GCPhasePause") || type.equals("jdk.SafepointBegin")) {
+                    pauses.add(new Pause(event.getStartTime(), event.getEndTime()));
+                }
+            }
+        }
+        pauses.sort((left, right) -> left.start().compareTo(right.start()));
+
+        System.out.printf("%-24s %7s %7s %9s %9s %9s %9s %8s %10s%n",
+            "stage", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "paused", "pause ms");
+        for (Map.Entry<String, List<RecordedEvent>> stage : stages.entrySet()) {
+            List<RecordedEvent> events = stage.getValue();
+            List<Long> nanos = new ArrayList<>(events.size());
+            int errors = 0;
+            int paused = 0;
+            long pauseNanos = 0;
+            for (RecordedEvent event : events) {
+                nanos.add(event.getDuration().toNanos());
+                if (!"success".equals(event.getString("outcome"))) {
+                    errors++;
+                }
+                long overlap = overlap(pauses, event.getStartTime(), event.getEndTime());
+                if (overlap > 0) {
+                    paused++;
+                    pauseNanos += overlap;
+                }
+            }
+            nanos.sort(null);
+            System.out.printf("%-24s %7d %7d %9.2f %9.2f %9.2f %9.2f %8d %10.2f%n", stage.getKey(), events.size(), errors,
+                percentile(nanos, 0.50), percentile(nanos, 0.90), percentile(nanos, 0.99), percentile(nanos, 1.0),
+                paused, pauseNanos / 1e6);
+        }
+        System.out.printf("%d GC pause phases and safepoints in the recording%n", pauses.size());
+    }
+
+    /**
+     * Nanoseconds of the interval covered by pauses. Pauses are sorted by start.
+     */
+    private static long overlap(List<Pause> pauses, Instant start, Instant end) {
+        long total = 0;
+        for (Pause pause : pauses) {
+            if (!pause.start().isBefore(end)) {
+                break;
+            }
+            Instant from = pause.start().isAfter(start) ? pause.start() : start;
+            Instant to = pause.end().isBefore(end) ? pause.end() : end;
+            if (from.isBefore(to)) {
+                total += Duration.between(from, to).toNanos();
+            }
+        }
+        return total;
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index))) / 1e6;
+    }
+
+    private record Pause(Instant start, Instant end) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.fitness.app.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays synthetic webhook updates against a running bot. Every simulated chat sends
+ * {@code /training}, waits until the stub has received its exercise messages and then replies
+ * to each of them with a result. At the end it prints webhook throughput, latency percentiles
+ * and the outbound call counts recorded by {@link StubServer}.
+ * <p>
+ * Options are system properties: {@code load.target} (http://localhost:8080/telegram/webhook),
+ * {@code load.secret} (must match telegram.bot.webhook-secret), {@code load.stub}
+ * (http://localhost:18080), {@code load.chats} (50), {@code load.rounds} per chat (1) and
+ * {@code load.usernames}, a comma separated list of usernames configured in
+ * telegram.bot.clients (loadtest).
+ * <p>
+ * With {@code load.mode=polling} updates are posted to the stub instead, which hands them to a
+ * bot running with telegram.bot.mode=polling; compare the overall update rate of both modes,
+ * since the latency then only covers queueing the update at the stub.
+ */
+public final class LoadGenerator {
+
+    private static final Duration MESSAGE_WAIT = Duration.ofSeconds(60);
+
+    private final boolean polling = "polling".equalsIgnoreCase(System.getProperty("load.mode", "webhook"));
+    private final String stub = System.getProperty("load.stub", "http://localhost:18080");
+    private final URI target = polling
+        ? URI.create(stub + "/stub/updates")
+        : URI.create(System.getProperty("load.target", "http://localhost:8080/telegram/webhook"));
+    private final String secret = System.getProperty("load.secret", "loadtest");
+    private final int chats = Integer.getInteger("load.chats", 50);
+    private final int rounds = Integer.getInteger("load.rounds", 1);
+    private final String[] usernames = System.getProperty("load.usernames", "loadtest").split(",");
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    private final AtomicInteger updateIds = new AtomicInteger(1);
+    private final AtomicInteger userMessageIds = new AtomicInteger(1_000_000);
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder missingMessages = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator().run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Replaying %d chats x %d rounds against %s (%s mode)%n", chats, rounds, target,
+            polling ? "polling" : "webhook");
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int chat = 0; chat < chats; chat++) {
+                long chatId = 500_000_000L + chat;
+                String username = usernames[chat % usernames.length].trim();
+                executor.submit(() -> {
+                    simulateChat(chatId, username);
+                    return null;
+                });
+            }
+        }
+        report(System.nanoTime() - start);
+    }
+
+    private void simulateChat(long chatId, String username) throws Exception {
+        List<Integer> exerciseMessages = List.of();
+        for (int round = 0; round < rounds; round++) {
+            post(update(chatId, username, "/training", null));
+            exerciseMessages = awaitExerciseMessages(chatId, exerciseMessages);
+            for (int i = 0; i < exerciseMessages.size(); i++) {
+                post(update(chatId, username, (60 + i * 5) + "x8", exerciseMessages.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Polls the stub until the chat's exercise messages stop changing and differ from those of
+     * the previous round.
+     */
+    private List<Integer> awaitExerciseMessages(long chatId, List<Integer> previousRound) throws Exception {
+        long deadline = System.nanoTime() + MESSAGE_WAIT.toNanos();
+        List<Integer> previous = List.of();
+        while (System.nanoTime() < deadline) {
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(stub + "/stub/chats/" + chatId + "/exercise-messages")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+            List<Integer> current = response.body().isBlank()
+                ? List.of()
+                : Arrays.stream(response.body().split(",")).map(Integer::valueOf).toList();
+            boolean newRound = !current.isEmpty() && !previousRound.contains(current.get(0));
+            if (newRound && current.equals(previous)) {
+                return current;
+            }
+            previous = current;
+            Thread.sleep(250);
+        }
+        missingMessages.increment();
+        return previous;
+    }
+
+    private void post(String update) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(target)
+            .header("Content-Type", "application/json")
+            .header("X-Telegram-Bot-Api-Secret-Token", secret)
+            .POST(HttpRequest.BodyPublishers.ofString(update))
+            .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 != 2) {
+                failures.increment();
+            }
+        } catch (Exception ex) {
+            failures.increment();
+        } finally {
+            latencies.add(System.nanoTime() - start);
+        }
+    }
+
+    private String update(long chatId, String username, String text, Integer replyTo) {
+        int messageId = userMessageIds.getAndIncrement();
+        long date = System.currentTimeMillis() / 1000;
+        String chat = "{\"id\":" + chatId + ",\"type\":\"private\"}";
+        String from = "{\"id\":" + chatId + ",\"is_bot\":false,\"first_name\":\"Load\",\"username\":\"" + username + "\"}";
+        String reply = replyTo == null ? "" : ",\"reply_to_message\":{\"message_id\":" + replyTo
+            + ",\"date\":" + date + ",\"chat\":" + chat + ",\"text\":\"Упражнение\"}";
+        return "{\"update_id\":" + updateIds.getAndIncrement() + ",\"message\":{\"message_id\":" + messageId
+            + ",\"date\":" + date + ",\"chat\":" + chat + ",\"from\":" + from + ",\"text\":\"" + text + "\"" + reply + "}}";
+    }
+
+    private void report(long elapsedNanos) throws Exception {
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Updates: %d in %.1f s (%.1f/s), failed: %d, chats without plan: %d%n",
+            sorted.size(), seconds, sorted.size() / seconds, failures.sum(), missingMessages.sum());
+        System.out.printf("Update latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+            percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        HttpResponse<String> stats = client.send(
+            HttpRequest.newBuilder(URI.create(stub + "/stub/stats")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        System.out.println("Outbound calls: " + stats.body());
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index))) / 1e6;
+    }
+}
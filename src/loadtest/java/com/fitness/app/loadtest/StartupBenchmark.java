@@ -0,0 +1,174 @@
+package com.fitness.app.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cold start of each way the application can be launched: the time from starting
+ * the process until a webhook update is answered with a 2xx. The update comes from a user that
+ * is not a configured client, so it is answered without calling Telegram or Google.
+ * <p>
+ * Variants are only measured when their artifacts exist: {@code jvm} and {@code jvm-aot} need the
+ * extracted jar, {@code cds} and {@code cds-aot} additionally {@code application.jsa} next to it
+ * ({@code ./gradlew cdsArchive}), {@code native} the binary from {@code ./gradlew nativeCompile}.
+ * Options are system properties: {@code startup.runs} per variant (5), {@code startup.timeoutSeconds}
+ * per start (60) and {@code startup.variants}, a comma separated subset to run.
+ */
+public final class StartupBenchmark {
+
+    private static final String TOKEN = "startup-benchmark";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+    private static final String UPDATE = "{\"update_id\":1,\"message\":{\"message_id\":1,\"date\":0,"
+        + "\"chat\":{\"id\":1,\"type\":\"private\"},"
+        + "\"from\":{\"id\":1,\"is_bot\":false,\"first_name\":\"Startup\",\"username\":\"startup-benchmark\"},"
+        + "\"text\":\"/training\"}}";
+
+    private final String java = System.getProperty("startup.java", "java");
+    private final Path jar = Path.of(System.getProperty("startup.jar", "build/cds/fitness-0.0.1-SNAPSHOT.jar"));
+    private final Path nativeImage = Path.of(System.getProperty("startup.native", "build/native/nativeCompile/fitness"));
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final Duration timeout = Duration.ofSeconds(Integer.getInteger("startup.timeoutSeconds", 60));
+    private final List<String> selected = List.of(System.getProperty("startup.variants", "").split(","));
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofMillis(200))
+        .build();
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Map<String, List<String>> variants = variants();
+        if (variants.isEmpty()) {
+            System.out.println("Nothing to measure, build the extracted jar with ./gradlew extractBootJar first");
+            return;
+        }
+        System.out.printf("Time to first served webhook, %d runs per variant%n", runs);
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            List<Long> millis = new ArrayList<>(runs);
+            int failed = 0;
+            for (int run = 0; run < runs; run++) {
+                long elapsed = measure(variant.getKey(), variant.getValue());
+                if (elapsed < 0) {
+                    failed++;
+                } else {
+                    millis.add(elapsed);
+                }
+            }
+            millis.sort(null);
+            if (millis.isEmpty()) {
+                System.out.printf("%-8s failed %d/%d%n", variant.getKey(), failed, runs);
+            } else {
+                System.out.printf("%-8s median %5d ms, min %5d ms, max %5d ms, failed %d%n", variant.getKey(),
+                    millis.get(millis.size() / 2), millis.get(0), millis.get(millis.size() - 1), failed);
+            }
+        }
+    }
+
+    private Map<String, List<String>> variants() {
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        if (Files.isRegularFile(jar)) {
+            String jarPath = jar.toAbsolutePath().toString();
+            String archive = jar.resolveSibling("application.jsa").toAbsolutePath().toString();
+            variants.put("jvm", List.of(java, "-jar", jarPath));
+            variants.put("jvm-aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", jarPath));
+            if (Files.isRegularFile(Path.of(archive))) {
+                variants.put("cds", List.of(java, "-XX:SharedArchiveFile=" + archive, "-jar", jarPath));
+                variants.put("cds-aot", List.of(java, "-XX:SharedArchiveFile=" + archive,
+                    "-Dspring.aot.enabled=true", "-jar", jarPath));
+            }
+        }
+        if (Files.isExecutable(nativeImage)) {
+            variants.put("native", List.of(nativeImage.toAbsolutePath().toString()));
+        }
+        if (selected.size() > 1 || !selected.get(0).isBlank()) {
+            variants.keySet().retainAll(selected.stream().map(String::trim).toList());
+        }
+        return variants;
+    }
+
+    /**
+     * Starts the variant in a fresh working directory and returns the milliseconds until the
+     * first webhook update was served, or -1 if it was not served in time.
+     */
+    private long measure(String name, List<String> command) throws Exception {
+        int port = freePort();
+        Path workDir = Files.createTempDirectory("startup-" + name);
+        ProcessBuilder builder = new ProcessBuilder(command)
+            .directory(workDir.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(workDir.resolve("application.log").toFile());
+        Map<String, String> environment = builder.environment();
+        environment.put("SERVER_PORT", String.valueOf(port));
+        environment.put("MANAGEMENT_SERVER_PORT", "-1");
+        environment.put("TELEGRAM_BOT_TOKEN", TOKEN);
+        environment.remove("TELEGRAM_BOT_WEBHOOK_SECRET");
+        environment.put("TELEGRAM_BOT_WEBHOOK_URL", "");
+        environment.put("TELEGRAM_BOT_API_BASE_URL", "http://127.0.0.1:9");
+        environment.put("GOOGLE_SHEETS_ID_1", "startup-benchmark");
+        environment.put("GOOGLE_SHEETS_ID_2", "startup-benchmark");
+        environment.put("GOOGLE_SERVICE_ACCOUNT_KEY_JSON", "startup-benchmark");
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/telegram/webhook"))
+            .header("Content-Type", "application/json")
+            .header("X-Telegram-Bot-Api-Secret-Token", webhookSecret(TOKEN))
+            .timeout(Duration.ofSeconds(5))
+            .POST(HttpRequest.BodyPublishers.ofString(UPDATE))
+            .build();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline && process.isAlive()) {
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() / 100 == 2) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException ex) {
+                    // not listening yet
+                }
+                Thread.sleep(POLL_INTERVAL);
+            }
+            System.out.printf("%-8s did not serve the webhook, see %s%n", name, workDir.resolve("application.log"));
+            return -1;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * The secret the application derives from the token when none is configured, so the
+     * benchmark goes through the same path as a process woken by a real update.
+     */
+    private static String webhookSecret(String token) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+            .digest(("telegram-webhook-secret:" + token).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+}
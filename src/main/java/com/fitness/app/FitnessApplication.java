@@ -1,12 +1,17 @@
 package com.fitness.app;
 
+import com.fitness.app.config.JsonBindingRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan
+@EnableScheduling
+@ImportRuntimeHints(JsonBindingRuntimeHints.class)
 public class FitnessApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,115 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.config.TelegramBotProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes Telegram updates off the webhook thread. Updates of the same chat are handled in
+ * the order they arrived, different chats are handled in parallel on virtual threads. The
+ * number of queued updates is bounded; what happens when the bound is reached is controlled by
+ * {@code telegram.bot.processing.backpressure}.
+ * <p>
+ * Queued updates are drained when the context stops, after the web server stopped taking
+ * webhook requests and before any bean is destroyed, so the updates still have the outbound
+ * dispatcher, the history store, the result storage and the session store they use.
+ */
+@Component
+public class ChatUpdateExecutor implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatUpdateExecutor.class);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final KeyedSerialExecutor executor = new KeyedSerialExecutor("update-");
+    private final Semaphore capacity;
+    private final TelegramBotProperties.Processing settings;
+    private volatile boolean running;
+
+    public ChatUpdateExecutor(TelegramBotProperties properties, MeterRegistry meterRegistry) {
+        this.settings = properties.getProcessing();
+        this.capacity = new Semaphore(Math.max(1, settings.getMaxQueueDepth()));
+        Gauge.builder("fitness.updates.queued", executor, KeyedSerialExecutor::queuedTasks)
+            .description("Updates accepted but not processed yet")
+            .register(meterRegistry);
+        Gauge.builder("fitness.updates.active_chats", executor, KeyedSerialExecutor::activeKeys)
+            .description("Chats with queued or running updates")
+            .register(meterRegistry);
+    }
+
+    public Admission submit(String chatId, Runnable task) {
+        if (!acquire()) {
+            if (settings.getBackpressure() == TelegramBotProperties.Backpressure.DROP) {
+                log.warn("Dropping update for chat {}: {} updates already queued", chatId, executor.queuedTasks());
+                return Admission.DROPPED;
+            }
+            log.warn("Rejecting update for chat {}: {} updates already queued", chatId, executor.queuedTasks());
+            return Admission.REJECTED;
+        }
+        try {
+            executor.execute(chatId, () -> {
+                try {
+                    task.run();
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            capacity.release();
+            log.error("Unable to schedule update for chat {}", chatId, ex);
+            return Admission.REJECTED;
+        }
+        return Admission.ACCEPTED;
+    }
+
+    public int getQueuedUpdates() {
+        return executor.queuedTasks();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdown(SHUTDOWN_TIMEOUT);
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1024;
+    }
+
+    private boolean acquire() {
+        if (settings.getBackpressure() != TelegramBotProperties.Backpressure.BLOCK) {
+            return capacity.tryAcquire();
+        }
+        try {
+            return capacity.tryAcquire(settings.getBlockTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public enum Admission {
+        ACCEPTED,
+        DROPPED,
+        REJECTED
+    }
+}
@@ -0,0 +1,32 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import org.springframework.util.StringUtils;
+
+/**
+ * Renders the Telegram message that presents one exercise of the plan.
+ */
+final class ExerciseMessageFormatter {
+
+    private ExerciseMessageFormatter() {
+    }
+
+    static String format(int index, Exercise exercise) {
+        StringBuilder message = new StringBuilder();
+        message.append("Упражнение ").append(index).append(": ").append(exercise.name());
+        appendDetail(message, "Вес", exercise.weight());
+        appendDetail(message, "Подходы", exercise.sets());
+        appendDetail(message, "Повторения", exercise.repetitions());
+        appendDetail(message, "Запас", exercise.reserve());
+        appendDetail(message, "Отдых", exercise.rest());
+        appendDetail(message, "Видео", exercise.videoLink());
+        appendDetail(message, "Комментарий", exercise.comment());
+        return message.toString().trim();
+    }
+
+    private static void appendDetail(StringBuilder builder, String label, String value) {
+        if (StringUtils.hasText(value)) {
+            builder.append("\n• ").append(label).append(": ").append(value.trim());
+        }
+    }
+}
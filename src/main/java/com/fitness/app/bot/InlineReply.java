@@ -0,0 +1,61 @@
+package com.fitness.app.bot;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Slot for the one Bot API call a webhook update may answer with in its HTTP response. The
+ * handler offers its first reply here; the slot is closed as soon as the handler sends anything
+ * through the outbound path, finishes, or the webhook stops waiting. Exactly one of offer and
+ * close wins, so a reply is either returned inline or sent outbound, never both or neither.
+ */
+final class InlineReply {
+
+    /**
+     * Slot for updates that have no HTTP response to answer in, such as long-polling updates.
+     */
+    static final InlineReply NONE = closed();
+
+    private static final int OPEN = 0;
+    private static final int REPLIED = 1;
+    private static final int CLOSED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(OPEN);
+    private final CompletableFuture<SendMessageMethod> response = new CompletableFuture<>();
+
+    /**
+     * Hands the message to the webhook response. Returns {@code false} when the slot is
+     * already used or closed and the message has to be sent outbound.
+     */
+    boolean offerMessage(String chatId, String text) {
+        if (state.get() != OPEN || !state.compareAndSet(OPEN, REPLIED)) {
+            return false;
+        }
+        response.complete(new SendMessageMethod("sendMessage", chatId, text));
+        return true;
+    }
+
+    void close() {
+        if (state.compareAndSet(OPEN, CLOSED)) {
+            response.complete(null);
+        }
+    }
+
+    /**
+     * Completes with the call to return inline, or with {@code null} when there is none.
+     */
+    CompletableFuture<SendMessageMethod> response() {
+        return response;
+    }
+
+    private static InlineReply closed() {
+        InlineReply reply = new InlineReply();
+        reply.close();
+        return reply;
+    }
+
+    record SendMessageMethod(String method, @JsonProperty("chat_id") String chatId, String text) {
+    }
+}
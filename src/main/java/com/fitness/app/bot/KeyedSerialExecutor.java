@@ -0,0 +1,132 @@
+package com.fitness.app.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on virtual threads so that tasks submitted with the same key execute one after
+ * another in submission order, while tasks of different keys run in parallel. A key only holds
+ * a thread while it has queued work.
+ */
+final class KeyedSerialExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    KeyedSerialExecutor(String threadNamePrefix) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+    }
+
+    void execute(String key, Runnable task) {
+        queued.incrementAndGet();
+        try {
+            lanes.compute(key, (laneKey, lane) -> {
+                Lane target = lane == null ? new Lane(laneKey) : lane;
+                target.tasks.add(task);
+                if (!target.running) {
+                    executor.execute(() -> drain(target));
+                    target.running = true;
+                }
+                return target;
+            });
+        } catch (RuntimeException ex) {
+            queued.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Number of tasks that were submitted and have not finished yet.
+     */
+    int queuedTasks() {
+        return queued.get();
+    }
+
+    /**
+     * Number of keys that currently have queued or running tasks.
+     */
+    int activeKeys() {
+        return lanes.size();
+    }
+
+    /**
+     * Whether the key has queued or running tasks.
+     */
+    boolean isActive(String key) {
+        return lanes.containsKey(key);
+    }
+
+    void shutdown(Duration timeout) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} tasks were still queued at shutdown", queued.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(Lane lane) {
+        boolean drained = false;
+        try {
+            Runnable task;
+            while ((task = next(lane)) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    log.error("Task for key {} failed", lane.key, ex);
+                } finally {
+                    queued.decrementAndGet();
+                }
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                // An Error escaped a task while the lane is still marked running; hand the rest
+                // of its queue to a new thread so the key is not stuck forever.
+                log.error("Task for key {} failed with an error, continuing on a new thread", lane.key);
+                executor.execute(() -> drain(lane));
+            }
+        }
+    }
+
+    private Runnable next(Lane lane) {
+        Runnable[] next = new Runnable[1];
+        lanes.compute(lane.key, (laneKey, current) -> {
+            next[0] = lane.tasks.poll();
+            if (next[0] == null) {
+                lane.running = false;
+                return null;
+            }
+            return current;
+        });
+        return next[0];
+    }
+
+    /**
+     * Per-key queue. Only mutated inside {@code lanes.compute} for its key.
+     */
+    private static final class Lane {
+        private final String key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        private Lane(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.GoogleSheetsService;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import com.fitness.app.session.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads and parses every configured client's plan on a schedule, concurrently on virtual
+ * threads, so the first /training of the day is served from the in-process cache. Optionally
+ * sends the plan to each client's known chat right away. For {@code prefetch.warm-ttl} after a
+ * prefetch, the plan is answered from memory and reloaded in the background once it is older
+ * than the plan cache TTL; with the cache disabled only the push runs.
+ */
+@Component
+@ConditionalOnProperty(prefix = "telegram.bot.prefetch", name = "enabled", havingValue = "true")
+@ConditionalOnExpression("T(org.springframework.util.StringUtils).hasText('${telegram.bot.token:}')")
+public class PlanPrefetchScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanPrefetchScheduler.class);
+
+    private final GoogleSheetsService googleSheetsService;
+    private final SheetTelegramBot bot;
+    private final ChatUpdateExecutor updateExecutor;
+    private final SessionStore sessionStore;
+    private final TelegramBotProperties properties;
+    private final Duration warmTtl;
+
+    public PlanPrefetchScheduler(GoogleSheetsService googleSheetsService,
+                                 SheetTelegramBot bot,
+                                 ChatUpdateExecutor updateExecutor,
+                                 SessionStore sessionStore,
+                                 TelegramBotProperties properties,
+                                 GoogleSheetsProperties sheetsProperties) {
+        this.googleSheetsService = googleSheetsService;
+        this.bot = bot;
+        this.updateExecutor = updateExecutor;
+        this.sessionStore = sessionStore;
+        this.properties = properties;
+        Duration cacheTtl = sheetsProperties.getCache().getTtl();
+        if (cacheTtl == null || !cacheTtl.isPositive()) {
+            log.warn("Plan cache is disabled (google.sheets.cache.ttl), prefetched plans would not be reused; "
+                + "only pushing plans");
+            this.warmTtl = Duration.ZERO;
+        } else {
+            Duration configured = properties.getPrefetch().getWarmTtl();
+            this.warmTtl = configured == null || configured.compareTo(cacheTtl) < 0 ? cacheTtl : configured;
+        }
+    }
+
+    @Scheduled(cron = "${telegram.bot.prefetch.cron:0 0 6 * * *}", zone = "${telegram.bot.prefetch.zone:UTC}")
+    public void prefetchPlans() {
+        Map<String, String> clients = properties.getClients();
+        if (clients == null || clients.isEmpty()) {
+            return;
+        }
+        TelegramBotProperties.Prefetch settings = properties.getPrefetch();
+        Semaphore permits = new Semaphore(Math.max(1, settings.getConcurrency()));
+        AtomicInteger warmed = new AtomicInteger();
+        AtomicInteger pushed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        Set<String> spreadsheets = warmTtl.isPositive() ? new HashSet<>(clients.values()) : Set.of();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String spreadSheetId : spreadsheets) {
+                executor.submit(() -> withPermit(permits, () -> {
+                    List<Exercise> plan = googleSheetsService.refreshExercises(spreadSheetId, warmTtl);
+                    log.debug("Prefetched {} exercises from {}", plan.size(), spreadSheetId);
+                    warmed.incrementAndGet();
+                }));
+            }
+        }
+
+        if (settings.isPush()) {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                clients.forEach((username, spreadSheetId) -> {
+                    Optional<String> chatId = sessionStore.findChatId(username);
+                    if (chatId.isEmpty()) {
+                        log.info("Not pushing the plan to {}: chat is not known yet", username);
+                        return;
+                    }
+                    executor.submit(() -> withPermit(permits, () -> {
+                        if (push(spreadSheetId, chatId.get())) {
+                            pushed.incrementAndGet();
+                        }
+                    }));
+                });
+            }
+        }
+        log.info("Prefetched {} of {} plans and pushed {} in {} ms", warmed.get(), spreadsheets.size(), pushed.get(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Runs the greeting on the chat's update lane, so it is ordered with the chat's own updates,
+     * and waits for it to finish.
+     */
+    private boolean push(String spreadSheetId, String chatId) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        ChatUpdateExecutor.Admission admission = updateExecutor.submit(chatId, () -> {
+            try {
+                bot.handleGreeting(spreadSheetId, chatId);
+                done.complete(null);
+            } catch (RuntimeException ex) {
+                done.completeExceptionally(ex);
+            }
+        });
+        if (admission != ChatUpdateExecutor.Admission.ACCEPTED) {
+            log.warn("Not pushing the plan to chat {}: update queue is full", chatId);
+            return false;
+        }
+        done.join();
+        return true;
+    }
+
+    private void withPermit(Semaphore permits, Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            log.warn("Plan prefetch task failed", ex);
+        } finally {
+            permits.release();
+        }
+    }
+}
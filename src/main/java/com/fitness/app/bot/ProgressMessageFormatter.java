@@ -0,0 +1,49 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.history.HistoryEntry;
+import com.fitness.app.history.ProgressReport;
+
+import java.util.Locale;
+
+/**
+ * Renders the answer to {@code /progress <exercise>}.
+ */
+final class ProgressMessageFormatter {
+
+    private ProgressMessageFormatter() {
+    }
+
+    static String format(ProgressReport report) {
+        StringBuilder message = new StringBuilder();
+        message.append("Прогресс: ").append(report.exercise())
+            .append("\n• Записей: ").append(report.entries());
+        if (report.bestWeight() != null) {
+            message.append("\n• Рекорд веса: ").append(number(report.bestWeight().weight())).append(" кг")
+                .append(" (").append(label(report.bestWeight())).append(")");
+        }
+        if (report.bestOneRepMax() != null) {
+            message.append("\n• Расчётный максимум на 1 раз: ")
+                .append(number(report.bestOneRepMax().estimatedOneRepMax())).append(" кг")
+                .append(" (").append(label(report.bestOneRepMax())).append(")");
+        }
+        if (report.weightChange() != null) {
+            double change = report.weightChange();
+            message.append("\n• Изменение веса: ").append(change > 0 ? "+" : "").append(number(change)).append(" кг");
+        }
+        message.append("\nПоследние результаты:");
+        for (HistoryEntry entry : report.recent()) {
+            message.append("\n• ").append(label(entry)).append(": ").append(entry.value());
+        }
+        return message.toString();
+    }
+
+    private static String label(HistoryEntry entry) {
+        return entry.session() == null || entry.session().isBlank() ? "—" : entry.session();
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value)
+            ? String.valueOf((long) value)
+            : String.format(Locale.ROOT, "%.1f", value);
+    }
+}
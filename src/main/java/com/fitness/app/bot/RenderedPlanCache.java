@@ -0,0 +1,67 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exercise messages rendered once per plan version and shared by every chat of a client and
+ * every repeated {@code /training}. The version of a plan is the content hash of its exercises.
+ * A plan that is neither the cached list nor equal to it is rendered again and replaces the
+ * cached messages, so an edit of the sheet invalidates them as soon as the edited plan is read.
+ */
+final class RenderedPlanCache {
+
+    private final Map<String, RenderedPlan> plans = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    /**
+     * Returns the messages of the plan in exercise order, rendering them only when the plan's
+     * content changed since the last call for the spreadsheet.
+     */
+    List<String> messages(String spreadSheetId, List<Exercise> exercises) {
+        RenderedPlan cached = plans.get(spreadSheetId);
+        if (cached != null) {
+            if (cached.exercises() == exercises) {
+                hits.increment();
+                return cached.messages();
+            }
+            if (cached.version() == exercises.hashCode() && cached.exercises().equals(exercises)) {
+                // Same content read again after a refresh: keep the new list so the next lookup
+                // is an identity check.
+                plans.replace(spreadSheetId, cached, new RenderedPlan(exercises, cached.version(), cached.messages()));
+                hits.increment();
+                return cached.messages();
+            }
+        }
+        RenderedPlan rendered = RenderedPlan.render(exercises);
+        plans.put(spreadSheetId, rendered);
+        renders.increment();
+        return rendered.messages();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long renders() {
+        return renders.sum();
+    }
+
+    private record RenderedPlan(List<Exercise> exercises, int version, List<String> messages) {
+
+        static RenderedPlan render(List<Exercise> exercises) {
+            List<String> messages = new ArrayList<>(exercises.size());
+            for (int index = 0; index < exercises.size(); index++) {
+                messages.add(ExerciseMessageFormatter.format(index + 1, exercises.get(index)));
+            }
+            return new RenderedPlan(exercises, exercises.hashCode(), Collections.unmodifiableList(messages));
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.fitness.app.bot;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.history.WorkoutHistoryStore;
+import com.fitness.app.metrics.StageEvent;
+import com.fitness.app.metrics.StageMetrics;
 import com.fitness.app.service.ExerciseResultStorage;
 import com.fitness.app.service.GoogleSheetsService;
 import com.fitness.app.service.GoogleSheetsService.Exercise;
+import com.fitness.app.session.SessionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,18 +22,22 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestClient;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
-import static com.fitness.app.bot.TelegramWebhookInitializer.SECRET;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("${telegram.bot.webhook-path:/telegram/webhook}")
@@ -35,77 +46,207 @@ public class SheetTelegramBot {
 
     private static final Logger log = LoggerFactory.getLogger(SheetTelegramBot.class);
     private static final String DONE_REACTION = "\uD83D\uDC4D";
+    private static final String PROGRESS_COMMAND = "/progress";
+    private static final Pattern RESULT_SEPARATOR = Pattern.compile("[;\\r\\n]");
+    private static final Pattern RESULT_ENTRY = Pattern.compile("(\\d{1,3})\\s*:\\s*(\\S.*)");
 
     private final GoogleSheetsService googleSheetsService;
-    private final RestClient telegramClient;
+    private final TelegramDispatcher telegramDispatcher;
     private final ExerciseResultStorage exerciseResultStorage;
-    private final Map<String, List<Exercise>> lastSentExercises = new ConcurrentHashMap<>();
-    private final Map<String, ConcurrentMap<Integer, Integer>> exerciseMessageLookup = new ConcurrentHashMap<>();
-    private final Map<String, Set<Integer>> completedExercises = new ConcurrentHashMap<>();
+    private final ChatUpdateExecutor updateExecutor;
+    private final SessionStore sessionStore;
+    private final WorkoutHistoryStore historyStore;
+    private final StageMetrics stageMetrics;
     private final TelegramBotProperties properties;
+    private final UpdateDeduplicator deduplicator;
+    private final Counter duplicateUpdates;
+    private final Counter inlineReplies;
+    private final RenderedPlanCache renderedPlans = new RenderedPlanCache();
 
     public SheetTelegramBot(GoogleSheetsService googleSheetsService,
                             ExerciseResultStorage exerciseResultStorage,
-                            TelegramBotProperties properties,
-                            RestClient.Builder restClientBuilder) {
+                            ChatUpdateExecutor updateExecutor,
+                            TelegramDispatcher telegramDispatcher,
+                            SessionStore sessionStore,
+                            WorkoutHistoryStore historyStore,
+                            StageMetrics stageMetrics,
+                            TelegramBotProperties properties) {
         this.googleSheetsService = googleSheetsService;
         this.exerciseResultStorage = exerciseResultStorage;
+        this.updateExecutor = updateExecutor;
+        this.telegramDispatcher = telegramDispatcher;
+        this.sessionStore = sessionStore;
+        this.historyStore = historyStore;
+        this.stageMetrics = stageMetrics;
         this.properties = properties;
-        this.telegramClient = restClientBuilder
-            .baseUrl("https://api.telegram.org/bot" + properties.getToken())
-            .build();
+        this.deduplicator = new UpdateDeduplicator(properties.getProcessing().getDeduplicationWindow());
+        this.duplicateUpdates = Counter.builder("fitness.updates.duplicates")
+            .description("Redelivered updates dropped by update_id")
+            .register(stageMetrics.getRegistry());
+        this.inlineReplies = Counter.builder("fitness.telegram.inline_replies")
+            .description("Replies returned in the webhook response instead of a sendMessage call")
+            .register(stageMetrics.getRegistry());
+        FunctionCounter.builder("fitness.telegram.rendered_plans", renderedPlans, RenderedPlanCache::hits)
+            .description("Plan message lookups")
+            .tag("result", "hit")
+            .register(stageMetrics.getRegistry());
+        FunctionCounter.builder("fitness.telegram.rendered_plans", renderedPlans, RenderedPlanCache::renders)
+            .description("Plan message lookups")
+            .tag("result", "render")
+            .register(stageMetrics.getRegistry());
     }
 
+    /**
+     * Waits up to {@code inline-reply-wait} for the update's first reply and returns it as the
+     * response body, which Telegram executes as a Bot API call. Updates answered later, or with
+     * nothing, get an empty 200 and their replies are sent outbound. Requests without the
+     * webhook secret are refused before anything is queued or sent.
+     */
     @PostMapping
-    public ResponseEntity<Void> onWebhookUpdate(
-        @RequestHeader("X-Telegram-Bot-Api-Secret-Token") String secret,
+    public CompletableFuture<ResponseEntity<Object>> onWebhookUpdate(
+        @RequestHeader(name = "X-Telegram-Bot-Api-Secret-Token", required = false) String secret,
         @RequestBody(required = false) Update update
     ) {
-        String chatId = update.getMessage().getChatId().toString();
-        if (!SECRET.equals(secret)) {
-            sendMessage(chatId, "403 епта");
-            return ResponseEntity.ok().build();
+        if (!isWebhookSecret(secret)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
         }
-
-        final var spreadSheetId = properties.getClients().get(update.getMessage().getFrom().getUserName());
-        if (spreadSheetId == null) {
-            sendMessage(chatId, "403 епта");
-            return ResponseEntity.ok().build();
+        if (update == null || !update.hasMessage()) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok().build());
+        }
+        Duration inlineReplyWait = properties.getProcessing().getInlineReplyWait();
+        InlineReply inline = inlineReplyWait.isPositive() ? new InlineReply() : InlineReply.NONE;
+        ChatUpdateExecutor.Admission admission = submitUpdate(update, inline);
+        if (admission == ChatUpdateExecutor.Admission.REJECTED) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
         }
+        if (admission == ChatUpdateExecutor.Admission.ACCEPTED && inlineReplyWait.isPositive()) {
+            CompletableFuture.delayedExecutor(inlineReplyWait.toMillis(), TimeUnit.MILLISECONDS).execute(inline::close);
+        }
+        return inline.response().thenApply(SheetTelegramBot::toWebhookResponse);
+    }
 
-        if (!hasReadableMessage(update)) {
+    private static ResponseEntity<Object> toWebhookResponse(InlineReply.SendMessageMethod method) {
+        if (method == null) {
             return ResponseEntity.ok().build();
         }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(method);
+    }
 
-        String message = update.getMessage().getText().trim();
-        Optional<ExerciseValue> exerciseValue = parseExerciseValue(update, chatId);
-        if (isHelloCommand(message)) {
-            handleGreeting(spreadSheetId, chatId);
-        } else if (exerciseValue.isPresent()) {
-            handleExerciseValue(spreadSheetId, chatId, exerciseValue.get());
-        } else {
-            sendMessage(chatId, "/training чтобы начать, или ответь на сообщение с упражнением чтобы записать результат");
+    private boolean isWebhookSecret(String secret) {
+        return secret != null && MessageDigest.isEqual(
+            properties.getWebhookSecret().getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    ChatUpdateExecutor.Admission submitUpdate(Update update) {
+        return submitUpdate(update, InlineReply.NONE);
+    }
+
+    /**
+     * Queues a message update on its chat's lane. Used for webhook and long-polling updates
+     * alike, both known to come from Telegram. Updates whose ID was already accepted are
+     * dropped here, before anything is read or sent.
+     */
+    private ChatUpdateExecutor.Admission submitUpdate(Update update, InlineReply inline) {
+        Integer updateId = update.getUpdateId();
+        if (updateId != null && !deduplicator.markFirstSeen(updateId)) {
+            duplicateUpdates.increment();
+            inline.close();
+            return ChatUpdateExecutor.Admission.DROPPED;
+        }
+        String chatId = update.getMessage().getChatId().toString();
+        ChatUpdateExecutor.Admission admission = updateExecutor.submit(chatId, () -> stageMetrics.record(
+            updateEvent(update, chatId), () -> handleUpdate(update, chatId, inline)));
+        if (admission != ChatUpdateExecutor.Admission.ACCEPTED) {
+            inline.close();
+            if (updateId != null) {
+                deduplicator.forget(updateId);
+            }
         }
+        return admission;
+    }
+
+    private StageEvent updateEvent(Update update, String chatId) {
+        Message message = update.getMessage();
+        String username = message.getFrom() == null ? null : message.getFrom().getUserName();
+        return StageEvent.begin(StageMetrics.WEBHOOK_UPDATE)
+            .chat(chatId)
+            .spreadsheet(username == null ? null : properties.getClients().get(username))
+            .payloadSize(message.hasText() ? message.getText().length() : 0);
+    }
+
+    private void handleUpdate(Update update, String chatId, InlineReply inline) {
+        try {
+            String username = update.getMessage().getFrom().getUserName();
+            final var spreadSheetId = properties.getClients().get(username);
+            if (spreadSheetId == null) {
+                reply(inline, chatId, "403 епта");
+                return;
+            }
+            sessionStore.rememberChat(username, chatId);
 
-        return ResponseEntity.ok().build();
+            if (!hasReadableMessage(update)) {
+                return;
+            }
+
+            String message = update.getMessage().getText().trim();
+            Optional<ExerciseValue> exerciseValue = parseExerciseValue(update, chatId);
+            List<ExerciseValue> exerciseValues = parseExerciseValues(message);
+            if (exerciseValue.isPresent() && exerciseValues.size() < 2) {
+                // A single "n: value" replying to an exercise message is that exercise's result.
+                exerciseValues = List.of();
+            }
+            if (isHelloCommand(message)) {
+                inline.close();
+                handleGreeting(spreadSheetId, chatId);
+            } else if (isProgressCommand(message)) {
+                handleProgress(spreadSheetId, chatId, message.substring(PROGRESS_COMMAND.length()).trim(), inline);
+            } else if (!exerciseValues.isEmpty()) {
+                handleExerciseValues(spreadSheetId, chatId, exerciseValues, update.getMessage().getMessageId(), inline);
+            } else if (exerciseValue.isPresent()) {
+                handleExerciseValue(spreadSheetId, chatId, exerciseValue.get(), inline);
+            } else {
+                reply(inline, chatId, "/training чтобы начать, или ответь на сообщение с упражнением чтобы записать результат. "
+                    + "Несколько результатов сразу: «1: 80x8; 2: 60x10». "
+                    + PROGRESS_COMMAND + " <упражнение> покажет прогресс");
+            }
+        } finally {
+            inline.close();
+        }
     }
 
     private boolean hasReadableMessage(Update update) {
         return update != null && update.hasMessage() && update.getMessage().hasText();
     }
 
+    /**
+     * Returns the message in the webhook response if the update can still be answered there,
+     * otherwise sends it outbound.
+     */
+    private void reply(InlineReply inline, String chatId, String text) {
+        awaitMessageId(queueReply(inline, chatId, text));
+    }
+
+    /**
+     * Like {@link #reply} but does not wait for an outbound message to be sent. Outbound
+     * messages of a chat are sent in the order they are queued.
+     */
+    private CompletableFuture<Integer> queueReply(InlineReply inline, String chatId, String text) {
+        if (inline.offerMessage(chatId, text)) {
+            inlineReplies.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        return telegramDispatcher.sendMessage(chatId, text);
+    }
+
     private Integer sendMessage(String chatId, String text) {
+        return awaitMessageId(telegramDispatcher.sendMessage(chatId, text));
+    }
+
+    private Integer awaitMessageId(CompletableFuture<Integer> pendingMessage) {
         try {
-            SendMessageResponse response = telegramClient.post()
-                .uri("/sendMessage")
-                .body(new SendMessageRequest(chatId, text))
-                .retrieve()
-                .body(SendMessageResponse.class);
-            if (response != null && response.result() != null) {
-                return response.result().messageId();
-            }
-        } catch (Exception ex) {
-            log.warn("Unable to send Telegram response", ex);
+            return pendingMessage.join();
+        } catch (CompletionException ex) {
+            log.warn("Unable to send Telegram response", ex.getCause());
         }
         return null;
     }
@@ -114,72 +255,203 @@ public class SheetTelegramBot {
         return message != null && "/training".equalsIgnoreCase(message.trim());
     }
 
-    private void handleGreeting(String spreadSheetId, String chatId) {
-        List<Exercise> exercises = googleSheetsService.readExercises(spreadSheetId);
+    private boolean isProgressCommand(String message) {
+        return message.regionMatches(true, 0, PROGRESS_COMMAND, 0, PROGRESS_COMMAND.length())
+            && (message.length() == PROGRESS_COMMAND.length() || Character.isWhitespace(message.charAt(PROGRESS_COMMAND.length())));
+    }
+
+    /**
+     * Answers from the local workout history only, the sheets are not read.
+     */
+    private void handleProgress(String spreadSheetId, String chatId, String query, InlineReply inline) {
+        if (query.isEmpty()) {
+            reply(inline, chatId, "Напиши название упражнения: " + PROGRESS_COMMAND + " присед");
+            return;
+        }
+        List<String> matches = historyStore.findExercises(spreadSheetId, query);
+        if (matches.isEmpty()) {
+            reply(inline, chatId, "Нет записанных результатов для «" + query + "».");
+        } else if (matches.size() > 1) {
+            reply(inline, chatId, "Нашёл несколько упражнений, уточни:\n• " + String.join("\n• ", matches));
+        } else {
+            historyStore.progress(spreadSheetId, matches.get(0))
+                .ifPresent(report -> reply(inline, chatId, ProgressMessageFormatter.format(report)));
+        }
+    }
+
+    /**
+     * Sends today's plan and starts a new session for the chat. Must run on the chat's update
+     * executor lane so it does not interleave with the chat's own updates.
+     */
+    void handleGreeting(String spreadSheetId, String chatId) {
+        GoogleSheetsService.WorkoutPlan plan = googleSheetsService.readPlan(spreadSheetId);
+        List<Exercise> exercises = plan.exercises();
         if (exercises.isEmpty()) {
             sendMessage(chatId, "Привет! Не удалось найти упражнения на сегодня.");
             return;
         }
 
-        sendMessage(chatId, "Привет! Вот тренировка на сегодня:");
-        int index = 1;
-        ConcurrentMap<Integer, Integer> chatMessages = new ConcurrentHashMap<>();
-        exerciseMessageLookup.put(chatId, chatMessages);
-        completedExercises.put(chatId, ConcurrentHashMap.newKeySet());
-        for (Exercise exercise : exercises) {
-            Integer messageId = sendMessage(chatId, formatExerciseMessage(index, exercise));
+        telegramDispatcher.sendMessage(chatId, "Привет! Вот тренировка на сегодня:");
+        if (plan.stale()) {
+            telegramDispatcher.sendMessage(chatId, "Таблица сейчас недоступна, показываю последнюю загруженную версию плана.");
+        }
+        List<String> messages = renderedPlans.messages(spreadSheetId, exercises);
+        List<CompletableFuture<Integer>> exerciseMessages = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            exerciseMessages.add(telegramDispatcher.sendMessage(chatId, message));
+        }
+        telegramDispatcher.sendMessage(chatId, "/training чтобы начать, или ответь на сообщение с упражнением чтобы записать результат");
+
+        sessionStore.startSession(chatId, exercises);
+        for (int exerciseIndex = 0; exerciseIndex < exerciseMessages.size(); exerciseIndex++) {
+            Integer messageId = awaitMessageId(exerciseMessages.get(exerciseIndex));
             if (messageId != null) {
-                chatMessages.put(messageId, index);
+                sessionStore.linkMessage(chatId, messageId, exerciseIndex + 1);
             }
-            index++;
         }
-        sendMessage(chatId, "/training чтобы начать, или ответь на сообщение с упражнением чтобы записать результат");
-        lastSentExercises.put(chatId, exercises);
     }
 
-    private void handleExerciseValue(String spreadSheetId, String chatId, ExerciseValue exerciseValue) {
+    /**
+     * Queues the confirmation and the reaction before writing the result, so the Telegram calls
+     * and the sheet write overlap instead of following each other; the handler still returns
+     * only after all of them, so the chat's next update cannot overtake them. Only the
+     * "Тренировка закончена!" notice depends on the write: the exercise is marked done and the
+     * notice queued behind the confirmation once the result is kept.
+     */
+    private void handleExerciseValue(String spreadSheetId, String chatId, ExerciseValue exerciseValue, InlineReply inline) {
         Exercise exercise = resolveExercise(chatId, exerciseValue.exerciseNumber());
         if (exercise == null) {
-            sendMessage(chatId, "Не нашёл упражнение с номером " + exerciseValue.exerciseNumber() + ". Сначала запроси тренировку.");
+            reply(inline, chatId, "Не нашёл упражнение с номером " + exerciseValue.exerciseNumber() + ". Сначала запроси тренировку.");
             return;
         }
 
-        exerciseResultStorage.storeResult(spreadSheetId, exercise.rowNumber(), exerciseValue.value());
-
         String exerciseName = exercise.name();
-        if (StringUtils.hasText(exerciseName)) {
-            sendMessage(chatId, "Записал упражнение " + exerciseValue.exerciseNumber() + " (" + exerciseName + "): " + exerciseValue.value());
-        } else {
-            sendMessage(chatId, "Записал упражнение " + exerciseValue.exerciseNumber() + ": " + exerciseValue.value());
+        String confirmation = StringUtils.hasText(exerciseName)
+            ? "Записал упражнение " + exerciseValue.exerciseNumber() + " (" + exerciseName + "): " + exerciseValue.value()
+            : "Записал упражнение " + exerciseValue.exerciseNumber() + ": " + exerciseValue.value();
+        CompletableFuture<Integer> sent = queueReply(inline, chatId, confirmation);
+        addDoneReaction(chatId, exerciseValue.exerciseMessageId());
+
+        if (storeResults(spreadSheetId, chatId, Map.of(exercise.rowNumber(), exerciseValue.value()))) {
+            historyStore.record(spreadSheetId, exercise.name(), exerciseValue.value());
+            completeExercises(chatId, List.of(exerciseValue), sent);
+        }
+        awaitMessageId(sent);
+    }
+
+    /**
+     * Stores several results of one message with a single sheet write and answers with one
+     * confirmation and one reaction on the user's message, instead of a write, a confirmation
+     * and a reaction per result. As for a single result, the write overlaps the Telegram calls
+     * and the exercises are only marked done once it succeeded.
+     */
+    private void handleExerciseValues(String spreadSheetId, String chatId, List<ExerciseValue> exerciseValues,
+                                      Integer userMessageId, InlineReply inline) {
+        Map<Integer, String> valuesByRow = new LinkedHashMap<>();
+        List<String> recorded = new ArrayList<>(exerciseValues.size());
+        List<String> unknown = new ArrayList<>();
+        List<Exercise> exercises = new ArrayList<>(exerciseValues.size());
+        List<ExerciseValue> resolved = new ArrayList<>(exerciseValues.size());
+        for (ExerciseValue exerciseValue : exerciseValues) {
+            Exercise exercise = resolveExercise(chatId, exerciseValue.exerciseNumber());
+            if (exercise == null) {
+                unknown.add(String.valueOf(exerciseValue.exerciseNumber()));
+                continue;
+            }
+            valuesByRow.put(exercise.rowNumber(), exerciseValue.value());
+            exercises.add(exercise);
+            resolved.add(exerciseValue);
+            recorded.add(StringUtils.hasText(exercise.name())
+                ? exerciseValue.exerciseNumber() + " (" + exercise.name() + "): " + exerciseValue.value()
+                : exerciseValue.exerciseNumber() + ": " + exerciseValue.value());
+        }
+        if (valuesByRow.isEmpty()) {
+            reply(inline, chatId, "Не нашёл упражнения с номерами " + String.join(", ", unknown) + ". Сначала запроси тренировку.");
+            return;
         }
 
-        markExerciseCompletion(chatId, exerciseValue);
+        StringBuilder confirmation = new StringBuilder("Записал:\n").append(String.join("\n", recorded));
+        if (!unknown.isEmpty()) {
+            confirmation.append("\nНе нашёл упражнения с номерами ").append(String.join(", ", unknown));
+        }
+        CompletableFuture<Integer> sent = queueReply(inline, chatId, confirmation.toString());
+        addDoneReaction(chatId, userMessageId);
+
+        if (storeResults(spreadSheetId, chatId, valuesByRow)) {
+            for (int index = 0; index < exercises.size(); index++) {
+                historyStore.record(spreadSheetId, exercises.get(index).name(), resolved.get(index).value());
+            }
+            completeExercises(chatId, resolved, sent);
+        }
+        awaitMessageId(sent);
     }
 
-    private Exercise resolveExercise(String chatId, int exerciseNumber) {
-        return Optional.ofNullable(lastSentExercises.get(chatId))
-            .filter(list -> exerciseNumber >= 1 && exerciseNumber <= list.size())
-            .map(list -> list.get(exerciseNumber - 1))
-            .orElse(null);
+    /**
+     * Marks the exercises of results that were kept as done and, when that finishes the plan,
+     * sends "Тренировка закончена!" after the confirmation. An inline confirmation leaves with
+     * the webhook response as soon as it is offered, before the write it waited for here.
+     */
+    private void completeExercises(String chatId, List<ExerciseValue> exerciseValues, CompletableFuture<Integer> confirmation) {
+        boolean finished = false;
+        for (ExerciseValue exerciseValue : exerciseValues) {
+            finished |= sessionStore.markCompleted(chatId, exerciseValue.exerciseNumber());
+        }
+        if (finished) {
+            awaitMessageId(confirmation);
+            awaitMessageId(telegramDispatcher.sendMessage(chatId, "Тренировка закончена!"));
+        }
     }
 
-    private String formatExerciseMessage(int index, Exercise exercise) {
-        StringBuilder message = new StringBuilder();
-        message.append("Упражнение ").append(index).append(": ").append(exercise.name());
-        appendDetail(message, "Вес", exercise.weight());
-        appendDetail(message, "Подходы", exercise.sets());
-        appendDetail(message, "Повторения", exercise.repetitions());
-        appendDetail(message, "Запас", exercise.reserve());
-        appendDetail(message, "Отдых", exercise.rest());
-        appendDetail(message, "Видео", exercise.videoLink());
-        appendDetail(message, "Комментарий", exercise.comment());
-        return message.toString().trim();
+    /**
+     * Writes the results while the confirmation is already on its way. The storage queues
+     * results it cannot write to Google, so this only fails when they cannot be kept at all;
+     * the user is then asked to send them again, after the confirmation.
+     */
+    private boolean storeResults(String spreadSheetId, String chatId, Map<Integer, String> valuesByRow) {
+        try {
+            if (valuesByRow.size() == 1) {
+                Map.Entry<Integer, String> result = valuesByRow.entrySet().iterator().next();
+                exerciseResultStorage.storeResult(spreadSheetId, result.getKey(), result.getValue());
+            } else {
+                exerciseResultStorage.storeResults(spreadSheetId, valuesByRow);
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("Unable to store {} exercise results for chat {}", valuesByRow.size(), chatId, ex);
+            telegramDispatcher.sendMessage(chatId, "Не удалось сохранить результат, отправь его ещё раз.");
+            return false;
+        }
     }
 
-    private void appendDetail(StringBuilder builder, String label, String value) {
-        if (StringUtils.hasText(value)) {
-            builder.append("\n• ").append(label).append(": ").append(value.trim());
+    /**
+     * Parses several results written in one message, {@code "1: 80x8; 2: 60x10; 4: done"} or one
+     * per line. Returns an empty list unless every part of the message is such an entry; a
+     * repeated exercise number keeps its last value. A message without a separator is never a
+     * batch, so a plain {@code "12:45"} is not written into exercise 12; a single result needs a
+     * trailing {@code ";"} or a reply to the exercise message.
+     */
+    static List<ExerciseValue> parseExerciseValues(String message) {
+        if (!RESULT_SEPARATOR.matcher(message).find()) {
+            return List.of();
         }
+        Map<Integer, ExerciseValue> values = new LinkedHashMap<>();
+        for (String part : RESULT_SEPARATOR.split(message)) {
+            if (part.isBlank()) {
+                continue;
+            }
+            Matcher entry = RESULT_ENTRY.matcher(part.trim());
+            if (!entry.matches()) {
+                return List.of();
+            }
+            int exerciseNumber = Integer.parseInt(entry.group(1));
+            values.remove(exerciseNumber);
+            values.put(exerciseNumber, new ExerciseValue(exerciseNumber, entry.group(2).trim(), null));
+        }
+        return List.copyOf(values.values());
+    }
+
+    private Exercise resolveExercise(String chatId, int exerciseNumber) {
+        return sessionStore.findExercise(chatId, exerciseNumber).orElse(null);
     }
 
     private Optional<ExerciseValue> parseExerciseValue(Update update, String chatId) {
@@ -203,64 +475,21 @@ public class SheetTelegramBot {
     }
 
     private Integer resolveExerciseNumberFromReply(Message reply, String chatId) {
-        ConcurrentMap<Integer, Integer> chatMapping = exerciseMessageLookup.get(chatId);
-        if (chatMapping == null) {
-            return null;
-        }
-        return chatMapping.get(reply.getMessageId());
-    }
-
-    private void markExerciseCompletion(String chatId, ExerciseValue exerciseValue) {
-        if (exerciseValue.exerciseMessageId() != null) {
-            addDoneReaction(chatId, exerciseValue.exerciseMessageId());
-        }
-        Set<Integer> completed = completedExercises.computeIfAbsent(chatId, key -> ConcurrentHashMap.newKeySet());
-        boolean isNewlyCompleted = completed.add(exerciseValue.exerciseNumber());
-        if (isNewlyCompleted && areAllExercisesCompleted(chatId, completed)) {
-            sendMessage(chatId, "Тренировка закончена!");
-        }
-    }
-
-    private boolean areAllExercisesCompleted(String chatId, Set<Integer> completed) {
-        List<Exercise> exercises = lastSentExercises.get(chatId);
-        return exercises != null && !exercises.isEmpty() && completed.size() >= exercises.size();
+        int exerciseNumber = sessionStore.exerciseNumberForMessage(chatId, reply.getMessageId());
+        return exerciseNumber > 0 ? exerciseNumber : null;
     }
 
     private void addDoneReaction(String chatId, Integer messageId) {
         if (messageId == null) {
             return;
         }
-        try {
-            telegramClient.post()
-                .uri("/setMessageReaction")
-                .body(new SetMessageReactionRequest(chatId, messageId, List.of(new ReactionTypeEmoji(DONE_REACTION))))
-                .retrieve()
-                .toBodilessEntity();
-        } catch (Exception ex) {
-            log.warn("Unable to set done reaction for message {}", messageId, ex);
-        }
-    }
-
-    private record SendMessageRequest(@JsonProperty("chat_id") String chatId, String text) {
-    }
-
-    private record SendMessageResponse(boolean ok, TelegramMessage result) {
-    }
-
-    private record TelegramMessage(@JsonProperty("message_id") Integer messageId) {
-    }
-
-    private record SetMessageReactionRequest(@JsonProperty("chat_id") String chatId,
-                                             @JsonProperty("message_id") Integer messageId,
-                                             List<ReactionTypeEmoji> reaction) {
-    }
-
-    private record ReactionTypeEmoji(@JsonProperty("type") String type, String emoji) {
-        private ReactionTypeEmoji(String emoji) {
-            this("emoji", emoji);
-        }
+        telegramDispatcher.setMessageReaction(chatId, messageId, DONE_REACTION)
+            .exceptionally(ex -> {
+                log.warn("Unable to set done reaction for message {}", messageId, ex);
+                return null;
+            });
     }
 
-    private record ExerciseValue(int exerciseNumber, String value, Integer exerciseMessageId) {
+    record ExerciseValue(int exerciseNumber, String value, Integer exerciseMessageId) {
     }
 }
@@ -0,0 +1,231 @@
+package com.fitness.app.bot;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fitness.app.config.RestClientFactory;
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.metrics.StageEvent;
+import com.fitness.app.metrics.StageMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single outbound path for Telegram Bot API calls. Calls are queued per chat and sent in
+ * order, subject to a global and a per-chat token bucket. A 429 answer pauses the chat and, as
+ * Telegram's limits apply to the whole bot, every other chat for the {@code retry_after}
+ * reported by Telegram, and the same call is retried, so messages are not dropped and stay
+ * ordered within the chat. Queue depth, send latency and 429 retries are
+ * published as metrics.
+ */
+@Component
+@ConditionalOnExpression("T(org.springframework.util.StringUtils).hasText('${telegram.bot.token:}')")
+public class TelegramDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(TelegramDispatcher.class);
+    private static final String NO_CHAT = "";
+    private static final int BUCKET_SWEEP_INTERVAL = 1024;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final RestClient telegramClient;
+    private final TelegramBotProperties.Outbound settings;
+    private final KeyedSerialExecutor lanes = new KeyedSerialExecutor("telegram-");
+    private final TokenBucket globalBucket;
+    private final ConcurrentMap<String, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private final AtomicInteger createdBuckets = new AtomicInteger();
+    private final StageMetrics stageMetrics;
+    private final Counter rateLimitedCalls;
+
+    public TelegramDispatcher(TelegramBotProperties properties,
+                              RestClientFactory restClientFactory,
+                              StageMetrics stageMetrics) {
+        this.settings = properties.getOutbound();
+        this.telegramClient = restClientFactory.builder(RestClientFactory.TELEGRAM)
+            .baseUrl(properties.getApiBaseUrl() + "/bot" + properties.getToken())
+            .build();
+        this.globalBucket = new TokenBucket(settings.getGlobalPerSecond(), settings.getGlobalBurst());
+        this.stageMetrics = stageMetrics;
+        this.rateLimitedCalls = Counter.builder("fitness.telegram.rate_limited")
+            .description("Bot API calls answered with 429 and retried")
+            .register(stageMetrics.getRegistry());
+        Gauge.builder("fitness.telegram.queue.depth", lanes, KeyedSerialExecutor::queuedTasks)
+            .description("Bot API calls waiting to be sent")
+            .register(stageMetrics.getRegistry());
+    }
+
+    /**
+     * Queues a text message and completes with the ID of the sent message.
+     */
+    public CompletableFuture<Integer> sendMessage(String chatId, String text) {
+        return call(chatId, "/sendMessage", new SendMessageRequest(chatId, text), SendMessageResponse.class)
+            .thenApply(response -> response != null && response.result() != null ? response.result().messageId() : null);
+    }
+
+    public CompletableFuture<Void> setMessageReaction(String chatId, int messageId, String emoji) {
+        SetMessageReactionRequest request =
+            new SetMessageReactionRequest(chatId, messageId, List.of(new ReactionTypeEmoji(emoji)));
+        return call(chatId, "/setMessageReaction", request, Void.class).thenApply(ignored -> null);
+    }
+
+    /**
+     * Queues an arbitrary Bot API method. Calls without a chat are only limited by the global
+     * bucket.
+     */
+    public <T> CompletableFuture<T> call(String chatId, String method, Object body, Class<T> responseType) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        String lane = chatId == null ? NO_CHAT : chatId;
+        lanes.execute(lane, () -> send(lane, method, body, responseType, result));
+        return result;
+    }
+
+    public int getQueueDepth() {
+        return lanes.queuedTasks();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lanes.shutdown(SHUTDOWN_TIMEOUT);
+    }
+
+    private <T> void send(String lane, String method, Object body, Class<T> responseType, CompletableFuture<T> result) {
+        TokenBucket chatBucket = lane.equals(NO_CHAT) ? null : chatBucket(lane);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (chatBucket != null) {
+                    sleep(chatBucket.reserve());
+                }
+                sleep(globalBucket.reserve());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(ex);
+                return;
+            }
+
+            StageEvent event = StageEvent.begin(stage(method))
+                .chat(lane.equals(NO_CHAT) ? null : lane)
+                .payloadSize(body instanceof SendMessageRequest request ? request.text().length() : 0);
+            long start = System.nanoTime();
+            try {
+                T response = telegramClient.post()
+                    .uri(method)
+                    .body(body)
+                    .retrieve()
+                    .body(responseType);
+                stageMetrics.recordDuration(event, true, System.nanoTime() - start);
+                result.complete(response);
+                return;
+            } catch (HttpClientErrorException ex) {
+                stageMetrics.recordDuration(event, false, System.nanoTime() - start);
+                if (ex.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value() || attempt >= settings.getMaxRetries()) {
+                    stageMetrics.recordError(stage(method), ex);
+                    result.completeExceptionally(ex);
+                    return;
+                }
+                rateLimitedCalls.increment();
+                long retryAfter = retryAfterNanos(ex);
+                log.debug("Telegram asked to retry {} for chat {} in {} ms", method, lane,
+                    TimeUnit.NANOSECONDS.toMillis(retryAfter));
+                if (chatBucket != null) {
+                    chatBucket.pause(retryAfter);
+                }
+                globalBucket.pause(retryAfter);
+            } catch (RuntimeException ex) {
+                stageMetrics.recordDuration(event, false, System.nanoTime() - start);
+                stageMetrics.recordError(stage(method), ex);
+                result.completeExceptionally(ex);
+                return;
+            }
+        }
+    }
+
+    private TokenBucket chatBucket(String chatId) {
+        return chatBuckets.computeIfAbsent(chatId, key -> {
+            if (createdBuckets.incrementAndGet() % BUCKET_SWEEP_INTERVAL == 0) {
+                sweepIdleBuckets();
+            }
+            return new TokenBucket(settings.getChatPerSecond(), settings.getChatBurst());
+        });
+    }
+
+    /**
+     * Drops buckets of chats that are idle and have nothing queued. A chat's calls hold on to its
+     * bucket while they run, so removing it then would let the next call start a second one.
+     */
+    private void sweepIdleBuckets() {
+        Thread.ofVirtual().start(() -> {
+            for (String chatId : chatBuckets.keySet()) {
+                chatBuckets.computeIfPresent(chatId,
+                    (key, bucket) -> bucket.isIdle() && !lanes.isActive(key) ? null : bucket);
+            }
+        });
+    }
+
+    private long retryAfterNanos(HttpClientErrorException ex) {
+        try {
+            TelegramError error = ex.getResponseBodyAs(TelegramError.class);
+            if (error != null && error.parameters() != null && error.parameters().retryAfter() != null) {
+                return TimeUnit.SECONDS.toNanos(error.parameters().retryAfter());
+            }
+        } catch (RuntimeException parseError) {
+            log.debug("Unable to read retry_after from Telegram response", parseError);
+        }
+        return TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static String stage(String method) {
+        return switch (method) {
+            case "/sendMessage" -> StageMetrics.TELEGRAM_SEND_MESSAGE;
+            case "/setMessageReaction" -> StageMetrics.TELEGRAM_SET_REACTION;
+            default -> "telegram" + method.replace('/', '.');
+        };
+    }
+
+    private static void sleep(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            Thread.sleep(Duration.ofNanos(nanos));
+        }
+    }
+
+    private record SendMessageRequest(@JsonProperty("chat_id") String chatId, String text) {
+    }
+
+    private record SendMessageResponse(boolean ok, TelegramMessage result) {
+    }
+
+    private record TelegramMessage(@JsonProperty("message_id") Integer messageId) {
+    }
+
+    private record SetMessageReactionRequest(@JsonProperty("chat_id") String chatId,
+                                             @JsonProperty("message_id") Integer messageId,
+                                             List<ReactionTypeEmoji> reaction) {
+    }
+
+    private record ReactionTypeEmoji(@JsonProperty("type") String type, String emoji) {
+        private ReactionTypeEmoji(String emoji) {
+            this("emoji", emoji);
+        }
+    }
+
+    private record TelegramError(boolean ok,
+                                 @JsonProperty("error_code") Integer errorCode,
+                                 String description,
+                                 ResponseParameters parameters) {
+    }
+
+    private record ResponseParameters(@JsonProperty("retry_after") Integer retryAfter) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.fitness.app.bot;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fitness.app.config.RestClientFactory;
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.metrics.StageMetrics;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Fetches updates with long-polling {@code getUpdates} calls instead of receiving them on the
+ * webhook. Every batch is handed to {@link SheetTelegramBot#submitUpdate}, so updates of
+ * different chats are handled concurrently while each chat's updates stay in order. The offset
+ * only moves past updates that were accepted; when the update queue is full the rest of the
+ * batch is fetched again after a short pause.
+ */
+@Component
+@ConditionalOnExpression("T(org.springframework.util.StringUtils).hasText('${telegram.bot.token:}') && " +
+    "'${telegram.bot.mode:webhook}'.equalsIgnoreCase('polling')")
+public class TelegramLongPoller implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TelegramLongPoller.class);
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration QUEUE_FULL_PAUSE = Duration.ofMillis(200);
+
+    private final RestClient pollingClient;
+    private final SheetTelegramBot bot;
+    private final TelegramBotProperties.Polling settings;
+    private final Counter polledUpdates;
+    private volatile boolean running;
+    private volatile Thread poller;
+
+    public TelegramLongPoller(TelegramBotProperties properties,
+                              RestClientFactory restClientFactory,
+                              SheetTelegramBot bot,
+                              StageMetrics stageMetrics) {
+        this.pollingClient = restClientFactory.builder(RestClientFactory.TELEGRAM_POLLING)
+            .baseUrl(properties.getApiBaseUrl() + "/bot" + properties.getToken())
+            .build();
+        this.bot = bot;
+        this.settings = properties.getPolling();
+        this.polledUpdates = Counter.builder("fitness.telegram.polled_updates")
+            .description("Updates received through getUpdates")
+            .register(stageMetrics.getRegistry());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            pollingClient.post()
+                .uri("/deleteWebhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new DeleteWebhookRequest(false))
+                .retrieve()
+                .toBodilessEntity();
+        } catch (Exception ex) {
+            log.warn("Unable to remove the Telegram webhook before polling", ex);
+        }
+        running = true;
+        poller = Thread.ofPlatform().name("telegram-poller").daemon().start(this::pollLoop);
+        log.info("Polling Telegram for updates (limit {}, timeout {})", settings.getLimit(), settings.getTimeout());
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        Thread thread = poller;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void pollLoop() {
+        long offset = 0;
+        Duration backoff = MIN_BACKOFF;
+        while (running) {
+            try {
+                List<Update> updates = fetch(offset);
+                backoff = MIN_BACKOFF;
+                offset = dispatch(updates, offset);
+            } catch (Exception ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("getUpdates failed, retrying in {}", backoff, ex);
+                if (!sleep(backoff)) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private List<Update> fetch(long offset) {
+        GetUpdatesRequest request = new GetUpdatesRequest(
+            offset,
+            Math.max(1, Math.min(100, settings.getLimit())),
+            (int) settings.getTimeout().toSeconds(),
+            List.of("message"));
+        GetUpdatesResponse response = pollingClient.post()
+            .uri("/getUpdates")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(request)
+            .retrieve()
+            .body(GetUpdatesResponse.class);
+        if (response == null || !response.ok() || response.result() == null) {
+            throw new IllegalStateException("Telegram rejected getUpdates");
+        }
+        return response.result();
+    }
+
+    /**
+     * Submits the batch in order and returns the offset for the next call: one past the last
+     * update that was accepted or skipped.
+     */
+    private long dispatch(List<Update> updates, long offset) {
+        for (Update update : updates) {
+            if (update.getUpdateId() == null) {
+                continue;
+            }
+            if (update.hasMessage()) {
+                ChatUpdateExecutor.Admission admission = bot.submitUpdate(update);
+                if (admission == ChatUpdateExecutor.Admission.REJECTED) {
+                    sleep(QUEUE_FULL_PAUSE);
+                    return offset;
+                }
+                polledUpdates.increment();
+            }
+            offset = Math.max(offset, update.getUpdateId() + 1L);
+        }
+        return offset;
+    }
+
+    private boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record GetUpdatesRequest(long offset,
+                                     int limit,
+                                     int timeout,
+                                     @JsonProperty("allowed_updates") List<String> allowedUpdates) {
+    }
+
+    private record GetUpdatesResponse(boolean ok, List<Update> result) {
+    }
+
+    private record DeleteWebhookRequest(@JsonProperty("drop_pending_updates") boolean dropPendingUpdates) {
+    }
+}
@@ -1,58 +1,54 @@
 package com.fitness.app.bot;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fitness.app.config.TelegramBotProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestClient;
-
-import java.util.UUID;
 
+/**
+ * Registers the webhook at startup. The URL is checked at runtime rather than in the bean
+ * condition: conditions are fixed when the AOT code is generated, where the deployment's URL is
+ * usually not set.
+ */
 @Component
 @ConditionalOnExpression("T(org.springframework.util.StringUtils).hasText('${telegram.bot.token:}') && " +
-    "T(org.springframework.util.StringUtils).hasText('${telegram.bot.webhook-url:}')")
+    "!'${telegram.bot.mode:webhook}'.equalsIgnoreCase('polling')")
 public class TelegramWebhookInitializer implements ApplicationRunner {
 
-    public static final String SECRET = UUID.randomUUID().toString();
     private static final Logger log = LoggerFactory.getLogger(TelegramWebhookInitializer.class);
 
-    private final RestClient telegramClient;
+    private final TelegramDispatcher telegramDispatcher;
     private final TelegramBotProperties properties;
 
-    public TelegramWebhookInitializer(RestClient.Builder restClientBuilder, TelegramBotProperties properties) {
+    public TelegramWebhookInitializer(TelegramDispatcher telegramDispatcher, TelegramBotProperties properties) {
         this.properties = properties;
-        this.telegramClient = restClientBuilder
-            .baseUrl("https://api.telegram.org/bot" + properties.getToken())
-            .build();
+        this.telegramDispatcher = telegramDispatcher;
     }
 
     @Override
     public void run(ApplicationArguments args) {
         if (!StringUtils.hasText(properties.getWebhookUrl())) {
+            log.info("No TELEGRAM_BOT_WEBHOOK_URL configured, leaving the Telegram webhook as it is");
             return;
         }
 
-        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
-        body.add("url", properties.getWebhookUrl());
-        body.add("secret_token", SECRET);
-
-        try {
-            telegramClient.post()
-                .uri("/setWebhook")
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(body)
-                .retrieve()
-                .toBodilessEntity();
-            log.info("Telegram webhook registered at {}", properties.getWebhookUrl());
-        } catch (Exception ex) {
-            log.error("Unable to register Telegram webhook", ex);
-        }
+        // Not awaited: the webhook usually is registered already, and startup should not wait
+        // for a Telegram round trip before the first update can be served.
+        SetWebhookRequest request = new SetWebhookRequest(properties.getWebhookUrl(), properties.getWebhookSecret());
+        telegramDispatcher.call(null, "/setWebhook", request, Void.class).whenComplete((result, ex) -> {
+            if (ex == null) {
+                log.info("Telegram webhook registered at {}", properties.getWebhookUrl());
+            } else {
+                log.error("Unable to register Telegram webhook", ex);
+            }
+        });
+    }
+
+    private record SetWebhookRequest(String url, @JsonProperty("secret_token") String secretToken) {
     }
 }
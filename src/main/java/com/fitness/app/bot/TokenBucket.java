@@ -0,0 +1,56 @@
+package com.fitness.app.bot;
+
+/**
+ * Token bucket that hands out reservations instead of rejecting callers: {@link #reserve()}
+ * always takes a token and returns how long the caller has to wait before using it.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    TokenBucket(double tokensPerSecond, int burst) {
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes one token and returns the number of nanoseconds to wait before it may be used.
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+        long wait = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        return Math.max(wait, pausedUntil - now);
+    }
+
+    /**
+     * Blocks every reservation for the given time, e.g. after the server asked to retry later.
+     */
+    synchronized void pause(long nanos) {
+        long now = System.nanoTime();
+        refill(now);
+        pausedUntil = Math.max(pausedUntil, now + nanos);
+        tokens = Math.min(tokens, 0);
+    }
+
+    /**
+     * Whether the bucket is full again, so dropping it loses no rate information.
+     */
+    synchronized boolean isIdle() {
+        long now = System.nanoTime();
+        refill(now);
+        return tokens >= capacity && now >= pausedUntil;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
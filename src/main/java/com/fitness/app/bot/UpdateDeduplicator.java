@@ -0,0 +1,106 @@
+package com.fitness.app.bot;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers which update IDs were seen within a sliding window of the most recent IDs. The
+ * window is a fixed bitset indexed by {@code updateId mod window}, so checking an update
+ * neither allocates nor grows with traffic. When the highest ID moves forward, the bits that
+ * fall out of the window are cleared.
+ * <p>
+ * An ID below the window is too old to tell and is dropped like a duplicate: it is a late
+ * redelivery of an update that was most likely handled already. Telegram picks a random new ID
+ * sequence after a week without updates, so an ID below the window only starts a new sequence
+ * when it is millions of IDs lower or arrives after such a pause.
+ */
+final class UpdateDeduplicator {
+
+    static final long SEQUENCE_RESTART_GAP = 1_000_000;
+    static final Duration SEQUENCE_RESTART_IDLE = Duration.ofDays(7);
+
+    private final long[] bits;
+    private final int mask;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long highest = -1;
+    private long lastSeenAt;
+
+    UpdateDeduplicator(int window) {
+        this(window, System::nanoTime);
+    }
+
+    UpdateDeduplicator(int window, LongSupplier nanoClock) {
+        int size = Integer.highestOneBit(Math.max(64, window - 1)) << 1;
+        this.bits = new long[size >>> 6];
+        this.mask = size - 1;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records the ID and returns {@code true} unless it was already recorded or is too old to
+     * tell.
+     */
+    boolean markFirstSeen(long updateId) {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            long idle = now - lastSeenAt;
+            lastSeenAt = now;
+            if (highest < 0) {
+                reset(updateId);
+            } else if (updateId <= highest - bits.length * 64L) {
+                if (highest - updateId < SEQUENCE_RESTART_GAP && idle < SEQUENCE_RESTART_IDLE.toNanos()) {
+                    return false;
+                }
+                reset(updateId);
+            } else if (updateId > highest) {
+                advanceTo(updateId);
+            }
+            int slot = (int) (updateId & mask);
+            long bit = 1L << slot;
+            if ((bits[slot >>> 6] & bit) != 0) {
+                return false;
+            }
+            bits[slot >>> 6] |= bit;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the ID again, for updates that were recorded but could not be accepted and will be
+     * redelivered.
+     */
+    void forget(long updateId) {
+        lock.lock();
+        try {
+            if (updateId <= highest && updateId > highest - bits.length * 64L) {
+                int slot = (int) (updateId & mask);
+                bits[slot >>> 6] &= ~(1L << slot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void advanceTo(long updateId) {
+        if (updateId - highest >= bits.length * 64L) {
+            Arrays.fill(bits, 0L);
+        } else {
+            for (long id = highest + 1; id <= updateId; id++) {
+                int slot = (int) (id & mask);
+                bits[slot >>> 6] &= ~(1L << slot);
+            }
+        }
+        highest = updateId;
+    }
+
+    private void reset(long updateId) {
+        Arrays.fill(bits, 0L);
+        highest = updateId;
+    }
+}
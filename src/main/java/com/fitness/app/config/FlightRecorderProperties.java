@@ -0,0 +1,62 @@
+package com.fitness.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "flight-recorder")
+public class FlightRecorderProperties {
+
+    /**
+     * Directory recordings started through /actuator/flightrecording are written to.
+     */
+    private String directory = "data/recordings";
+
+    /**
+     * JFR settings the recording starts from, "default" or "profile".
+     */
+    private String settings = "profile";
+
+    /**
+     * Recordings stop on their own after this long unless a shorter duration is requested.
+     */
+    private Duration maxDuration = Duration.ofMinutes(10);
+
+    /**
+     * Number of recording files kept in the directory; the oldest are deleted when a new
+     * recording starts.
+     */
+    private int maxFiles = 5;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Duration maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+}
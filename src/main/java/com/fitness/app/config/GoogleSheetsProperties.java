@@ -2,6 +2,8 @@ package com.fitness.app.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "google.sheets")
 public class GoogleSheetsProperties {
 
@@ -10,11 +12,40 @@ public class GoogleSheetsProperties {
      */
     private String worksheetGid = "0";
 
+    /**
+     * How plans are downloaded: the public gviz CSV export of the whole worksheet, or only
+     * the exercise range through the Sheets API with the service account.
+     */
+    private ReadMode readMode = ReadMode.GVIZ;
+
     /**
      * Raw service account JSON used for write access.
      */
     private String serviceAccountKeyJson;
 
+    /**
+     * Base URL of the host serving the gviz CSV export.
+     */
+    private String exportBaseUrl = "https://docs.google.com";
+
+    /**
+     * Base URL of the Google Sheets API.
+     */
+    private String apiBaseUrl = "https://sheets.googleapis.com";
+
+    /**
+     * How long before expiry the service account access token is refreshed in the background.
+     */
+    private Duration accessTokenRefreshMargin = Duration.ofMinutes(5);
+
+    private final Cache cache = new Cache();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private final Quota quota = new Quota();
+
     public String getWorksheetGid() {
         return worksheetGid;
     }
@@ -23,6 +54,14 @@ public class GoogleSheetsProperties {
         this.worksheetGid = worksheetGid;
     }
 
+    public ReadMode getReadMode() {
+        return readMode;
+    }
+
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+
     public String getServiceAccountKeyJson() {
         return serviceAccountKeyJson;
     }
@@ -30,4 +69,336 @@ public class GoogleSheetsProperties {
     public void setServiceAccountKeyJson(String serviceAccountKeyJson) {
         this.serviceAccountKeyJson = serviceAccountKeyJson;
     }
+
+    public String getExportBaseUrl() {
+        return exportBaseUrl;
+    }
+
+    public void setExportBaseUrl(String exportBaseUrl) {
+        this.exportBaseUrl = exportBaseUrl;
+    }
+
+    public String getApiBaseUrl() {
+        return apiBaseUrl;
+    }
+
+    public void setApiBaseUrl(String apiBaseUrl) {
+        this.apiBaseUrl = apiBaseUrl;
+    }
+
+    public Duration getAccessTokenRefreshMargin() {
+        return accessTokenRefreshMargin;
+    }
+
+    public void setAccessTokenRefreshMargin(Duration accessTokenRefreshMargin) {
+        this.accessTokenRefreshMargin = accessTokenRefreshMargin;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Quota getQuota() {
+        return quota;
+    }
+
+    public enum ReadMode {
+        GVIZ,
+        SHEETS_API
+    }
+
+    public static class Cache {
+
+        /**
+         * How long a parsed worksheet is served from memory before it is downloaded again.
+         * Zero disables the cache.
+         */
+        private Duration ttl = Duration.ofMinutes(1);
+
+        /**
+         * Maximum number of worksheets kept in memory.
+         */
+        private int maximumSize = 100;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
+    public static class CircuitBreaker {
+
+        /**
+         * Percentage of failed calls in the sliding window that opens the breaker.
+         */
+        private float failureRateThreshold = 50;
+
+        /**
+         * Calls taking longer than this count as slow.
+         */
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(5);
+
+        /**
+         * Percentage of slow calls in the sliding window that opens the breaker.
+         */
+        private float slowCallRateThreshold = 80;
+
+        /**
+         * Number of most recent calls the rates are computed over.
+         */
+        private int slidingWindowSize = 20;
+
+        /**
+         * Calls needed in the window before the rates are evaluated.
+         */
+        private int minimumNumberOfCalls = 5;
+
+        /**
+         * How long the breaker rejects calls before letting trial calls through.
+         */
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+        /**
+         * Number of trial calls allowed while half open.
+         */
+        private int permittedCallsInHalfOpenState = 2;
+
+        public float getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getSlowCallDurationThreshold() {
+            return slowCallDurationThreshold;
+        }
+
+        public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+            this.slowCallDurationThreshold = slowCallDurationThreshold;
+        }
+
+        public float getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumNumberOfCalls() {
+            return minimumNumberOfCalls;
+        }
+
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+        }
+
+        public Duration getWaitDurationInOpenState() {
+            return waitDurationInOpenState;
+        }
+
+        public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+        }
+
+        public int getPermittedCallsInHalfOpenState() {
+            return permittedCallsInHalfOpenState;
+        }
+
+        public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        }
+    }
+
+    public static class WriteBehind {
+
+        /**
+         * Acknowledge results once they are in the local log and write them to the sheet in
+         * the background.
+         */
+        private boolean enabled;
+
+        /**
+         * File holding results that have not been written to Google Sheets yet.
+         */
+        private String logPath = "data/pending-results.log";
+
+        /**
+         * File receiving results Google rejected permanently, e.g. because the spreadsheet was
+         * deleted or is no longer shared. They are kept for manual recovery, not retried.
+         */
+        private String deadLetterPath = "data/failed-results.log";
+
+        /**
+         * Delay between background flushes.
+         */
+        private Duration flushInterval = Duration.ofSeconds(2);
+
+        /**
+         * Maximum number of cells sent in one batch update.
+         */
+        private int maxBatchSize = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getLogPath() {
+            return logPath;
+        }
+
+        public void setLogPath(String logPath) {
+            this.logPath = logPath;
+        }
+
+        public String getDeadLetterPath() {
+            return deadLetterPath;
+        }
+
+        public void setDeadLetterPath(String deadLetterPath) {
+            this.deadLetterPath = deadLetterPath;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
+
+    public static class Quota {
+
+        /**
+         * Read requests per minute shared by every client of the service account.
+         */
+        private int readsPerMinute = 60;
+
+        /**
+         * Write requests per minute shared by every client of the service account.
+         */
+        private int writesPerMinute = 60;
+
+        /**
+         * Requests that may be sent at once after a quiet period, per bucket.
+         */
+        private int burst = 10;
+
+        /**
+         * How long a user-facing call waits for quota before its caller falls back to the last
+         * good plan or the pending result queue.
+         */
+        private Duration maxWait = Duration.ofSeconds(3);
+
+        /**
+         * First pause after a quota error; doubles with every further error up to
+         * {@code max-backoff} and is randomised by +/-50%.
+         */
+        private Duration initialBackoff = Duration.ofSeconds(1);
+
+        private Duration maxBackoff = Duration.ofSeconds(32);
+
+        /**
+         * How often background calls are retried after a quota error.
+         */
+        private int maxRetries = 5;
+
+        public int getReadsPerMinute() {
+            return readsPerMinute;
+        }
+
+        public void setReadsPerMinute(int readsPerMinute) {
+            this.readsPerMinute = readsPerMinute;
+        }
+
+        public int getWritesPerMinute() {
+            return writesPerMinute;
+        }
+
+        public void setWritesPerMinute(int writesPerMinute) {
+            this.writesPerMinute = writesPerMinute;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package com.fitness.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "history")
+public class HistoryProperties {
+
+    /**
+     * Keep a local copy of every stored result for /progress.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Append-only file the workout history is kept in.
+     */
+    private String path = "data/history.log";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
@@ -0,0 +1,122 @@
+package com.fitness.app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientProperties {
+
+    /**
+     * Telegram Bot API.
+     */
+    private final Service telegram = new Service(Duration.ofSeconds(15), 50);
+
+    /**
+     * Telegram Bot API long polling. The read timeout must exceed telegram.bot.polling.timeout.
+     */
+    private final Service telegramPolling = new Service(Duration.ofSeconds(75), 2);
+
+    /**
+     * gviz CSV export on docs.google.com.
+     */
+    private final Service googleExport = new Service(Duration.ofSeconds(30), 10);
+
+    /**
+     * Google Sheets API.
+     */
+    private final Service googleApi = new Service(Duration.ofSeconds(20), 20);
+
+    public Service getTelegram() {
+        return telegram;
+    }
+
+    public Service getTelegramPolling() {
+        return telegramPolling;
+    }
+
+    public Service getGoogleExport() {
+        return googleExport;
+    }
+
+    public Service getGoogleApi() {
+        return googleApi;
+    }
+
+    public static class Service {
+
+        /**
+         * Time allowed to establish a connection.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Maximum time without data while waiting for or reading a response.
+         */
+        private Duration readTimeout;
+
+        /**
+         * Maximum time to wait for a free connection from the pool.
+         */
+        private Duration poolTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Maximum number of pooled connections to the service.
+         */
+        private int maxConnections;
+
+        /**
+         * How long an unused keep-alive connection stays in the pool.
+         */
+        private Duration idleTimeout = Duration.ofSeconds(60);
+
+        public Service() {
+            this(Duration.ofSeconds(30), 20);
+        }
+
+        Service(Duration readTimeout, int maxConnections) {
+            this.readTimeout = readTimeout;
+            this.maxConnections = maxConnections;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public Duration getPoolTimeout() {
+            return poolTimeout;
+        }
+
+        public void setPoolTimeout(Duration poolTimeout) {
+            this.poolTimeout = poolTimeout;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.fitness.app.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/**
+ * Reflection hints for the records exchanged with the Telegram and Google APIs through
+ * {@code RestClient}. Spring AOT only finds controller and actuator payloads on its own; these
+ * records are private to the classes using them, so they are registered by name. Registering a
+ * record also covers the types of its components, such as {@code Update} in getUpdates
+ * responses.
+ */
+public class JsonBindingRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<String> RECORDS = List.of(
+        "com.fitness.app.bot.InlineReply$SendMessageMethod",
+        "com.fitness.app.bot.TelegramDispatcher$SendMessageRequest",
+        "com.fitness.app.bot.TelegramDispatcher$SendMessageResponse",
+        "com.fitness.app.bot.TelegramDispatcher$SetMessageReactionRequest",
+        "com.fitness.app.bot.TelegramDispatcher$TelegramError",
+        "com.fitness.app.bot.TelegramLongPoller$GetUpdatesRequest",
+        "com.fitness.app.bot.TelegramLongPoller$GetUpdatesResponse",
+        "com.fitness.app.bot.TelegramLongPoller$DeleteWebhookRequest",
+        "com.fitness.app.bot.TelegramWebhookInitializer$SetWebhookRequest",
+        "com.fitness.app.service.ExerciseResultStorage$BatchUpdateBody",
+        "com.fitness.app.service.SheetsApiWorksheetReader$BatchGetResponse",
+        "com.fitness.app.service.SheetsApiWorksheetReader$SpreadsheetResponse");
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (String name : RECORDS) {
+            try {
+                bindingRegistrar.registerReflectionHints(hints.reflection(), ClassUtils.forName(name, classLoader));
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException("JSON record " + name + " no longer exists", ex);
+            }
+        }
+    }
+}
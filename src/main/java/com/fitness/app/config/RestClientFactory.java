@@ -0,0 +1,113 @@
+package com.fitness.app.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Central place where the {@link RestClient}s for external services are created. Every
+ * service gets its own pool of keep-alive connections with the timeouts and pool size from
+ * {@code http.client.<service>}; responses are transparently gzip-decompressed and pool usage
+ * is published as {@code httpcomponents.httpclient.pool.*} metrics.
+ */
+@Component
+public class RestClientFactory {
+
+    public static final String TELEGRAM = "telegram";
+    public static final String TELEGRAM_POLLING = "telegram-polling";
+    public static final String GOOGLE_EXPORT = "google-export";
+    public static final String GOOGLE_API = "google-api";
+
+    private static final Logger log = LoggerFactory.getLogger(RestClientFactory.class);
+
+    private final RestClient.Builder restClientBuilder;
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<CloseableHttpClient> clients = new CopyOnWriteArrayList<>();
+
+    public RestClientFactory(RestClient.Builder restClientBuilder,
+                             HttpClientProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.restClientBuilder = restClientBuilder;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Returns a builder whose requests go through the connection pool of the given service.
+     */
+    public RestClient.Builder builder(String service) {
+        return restClientBuilder.clone()
+            .requestFactory(new HttpComponentsClientHttpRequestFactory(createClient(service, settings(service))));
+    }
+
+    @PreDestroy
+    void closeClients() {
+        for (CloseableHttpClient client : clients) {
+            try {
+                client.close();
+            } catch (IOException ex) {
+                log.warn("Unable to close HTTP client", ex);
+            }
+        }
+    }
+
+    private CloseableHttpClient createClient(String service, HttpClientProperties.Service settings) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(settings.getMaxConnections())
+            .setMaxConnPerRoute(settings.getMaxConnections())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(timeout(settings.getConnectTimeout()))
+                .setSocketTimeout(timeout(settings.getReadTimeout()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                .build())
+            .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, service, Tags.of("service", service))
+            .bindTo(meterRegistry);
+
+        CloseableHttpClient client = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout(settings.getPoolTimeout()))
+                .setResponseTimeout(timeout(settings.getReadTimeout()))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(settings.getIdleTimeout().toMillis()))
+            .build();
+        clients.add(client);
+        return client;
+    }
+
+    private HttpClientProperties.Service settings(String service) {
+        return switch (service) {
+            case TELEGRAM -> properties.getTelegram();
+            case TELEGRAM_POLLING -> properties.getTelegramPolling();
+            case GOOGLE_EXPORT -> properties.getGoogleExport();
+            case GOOGLE_API -> properties.getGoogleApi();
+            default -> throw new IllegalArgumentException("Unknown HTTP client service: " + service);
+        };
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+}
@@ -1,7 +1,13 @@
 package com.fitness.app.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = "telegram.bot")
@@ -9,8 +15,16 @@ public class TelegramBotProperties {
 
     private String token;
     private String username = "fitness-sheet-reader-bot";
+    private Mode mode = Mode.WEBHOOK;
     private String webhookUrl;
+    private String webhookSecret;
+    private String apiBaseUrl = "https://api.telegram.org";
     private Map<String, String> clients;
+    private final Polling polling = new Polling();
+    private final Processing processing = new Processing();
+    private final Outbound outbound = new Outbound();
+    private final Sessions sessions = new Sessions();
+    private final Prefetch prefetch = new Prefetch();
 
     public String getToken() {
         return token;
@@ -28,6 +42,18 @@ public class TelegramBotProperties {
         this.username = username;
     }
 
+    /**
+     * How updates reach the bot: pushed by Telegram to the webhook, or fetched with getUpdates
+     * when no public HTTPS endpoint is available.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
     public String getWebhookUrl() {
         return webhookUrl;
     }
@@ -36,6 +62,49 @@ public class TelegramBotProperties {
         this.webhookUrl = webhookUrl;
     }
 
+    /**
+     * Secret Telegram sends back in the X-Telegram-Bot-Api-Secret-Token header. Unless
+     * configured, it is derived from the token, so every process of the bot, including one
+     * woken by the update it has to answer, expects the secret the webhook was registered with.
+     */
+    public String getWebhookSecret() {
+        return webhookSecret != null ? webhookSecret : deriveWebhookSecret(token);
+    }
+
+    public boolean isWebhookSecretConfigured() {
+        return webhookSecret != null;
+    }
+
+    public void setWebhookSecret(String webhookSecret) {
+        if (StringUtils.hasText(webhookSecret)) {
+            this.webhookSecret = webhookSecret;
+        }
+    }
+
+    /**
+     * SHA-256 of the token in hex, which Telegram accepts as a secret token.
+     */
+    static String deriveWebhookSecret(String token) {
+        if (!StringUtils.hasText(token)) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(("telegram-webhook-secret:" + token).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    public String getApiBaseUrl() {
+        return apiBaseUrl;
+    }
+
+    public void setApiBaseUrl(String apiBaseUrl) {
+        this.apiBaseUrl = apiBaseUrl;
+    }
+
     public Map<String, String> getClients() {
         return clients;
     }
@@ -43,4 +112,368 @@ public class TelegramBotProperties {
     public void setClients(Map<String, String> clients) {
         this.clients = clients;
     }
+
+    public Polling getPolling() {
+        return polling;
+    }
+
+    public Processing getProcessing() {
+        return processing;
+    }
+
+    public Outbound getOutbound() {
+        return outbound;
+    }
+
+    public Sessions getSessions() {
+        return sessions;
+    }
+
+    public Prefetch getPrefetch() {
+        return prefetch;
+    }
+
+    public static class Polling {
+
+        /**
+         * Maximum number of updates fetched with one getUpdates call (1-100).
+         */
+        private int limit = 100;
+
+        /**
+         * How long Telegram holds a getUpdates call open when there are no updates.
+         */
+        private Duration timeout = Duration.ofSeconds(50);
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public void setLimit(int limit) {
+            this.limit = limit;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class Processing {
+
+        /**
+         * Maximum number of updates accepted but not yet processed.
+         */
+        private int maxQueueDepth = 1000;
+
+        /**
+         * What to do with an update when the queue is full.
+         */
+        private Backpressure backpressure = Backpressure.REJECT;
+
+        /**
+         * How long a webhook request waits for room in the queue with the BLOCK strategy.
+         */
+        private Duration blockTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Number of most recent update IDs remembered to drop updates Telegram redelivers.
+         */
+        private int deduplicationWindow = 4096;
+
+        /**
+         * How long a webhook request waits for the update's first reply to return it in the
+         * response body instead of sending it separately. Zero disables inline replies.
+         */
+        private Duration inlineReplyWait = Duration.ofMillis(250);
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        public void setMaxQueueDepth(int maxQueueDepth) {
+            this.maxQueueDepth = maxQueueDepth;
+        }
+
+        public Duration getInlineReplyWait() {
+            return inlineReplyWait;
+        }
+
+        public void setInlineReplyWait(Duration inlineReplyWait) {
+            this.inlineReplyWait = inlineReplyWait;
+        }
+
+        public int getDeduplicationWindow() {
+            return deduplicationWindow;
+        }
+
+        public void setDeduplicationWindow(int deduplicationWindow) {
+            this.deduplicationWindow = deduplicationWindow;
+        }
+
+        public Backpressure getBackpressure() {
+            return backpressure;
+        }
+
+        public void setBackpressure(Backpressure backpressure) {
+            this.backpressure = backpressure;
+        }
+
+        public Duration getBlockTimeout() {
+            return blockTimeout;
+        }
+
+        public void setBlockTimeout(Duration blockTimeout) {
+            this.blockTimeout = blockTimeout;
+        }
+    }
+
+    public static class Outbound {
+
+        /**
+         * Bot API calls per second across all chats.
+         */
+        private double globalPerSecond = 30;
+
+        /**
+         * Calls that may be sent back to back before the global rate applies.
+         */
+        private int globalBurst = 30;
+
+        /**
+         * Bot API calls per second within one chat.
+         */
+        private double chatPerSecond = 1;
+
+        /**
+         * Calls that may be sent to one chat back to back before the chat rate applies.
+         */
+        private int chatBurst = 3;
+
+        /**
+         * How many times a call answered with 429 is retried.
+         */
+        private int maxRetries = 5;
+
+        public double getGlobalPerSecond() {
+            return globalPerSecond;
+        }
+
+        public void setGlobalPerSecond(double globalPerSecond) {
+            this.globalPerSecond = globalPerSecond;
+        }
+
+        public int getGlobalBurst() {
+            return globalBurst;
+        }
+
+        public void setGlobalBurst(int globalBurst) {
+            this.globalBurst = globalBurst;
+        }
+
+        public double getChatPerSecond() {
+            return chatPerSecond;
+        }
+
+        public void setChatPerSecond(double chatPerSecond) {
+            this.chatPerSecond = chatPerSecond;
+        }
+
+        public int getChatBurst() {
+            return chatBurst;
+        }
+
+        public void setChatBurst(int chatBurst) {
+            this.chatBurst = chatBurst;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+    }
+
+    public static class Sessions {
+
+        /**
+         * Where sessions are kept: in this process, or in a SQLite database that several
+         * replicas on the same host or volume can share.
+         */
+        private SessionStoreType store = SessionStoreType.MEMORY;
+
+        /**
+         * SQLite database file used by the sqlite session store.
+         */
+        private String sqlitePath = "data/sessions.db";
+
+        /**
+         * How long a chat session is kept after it was last used. Zero keeps sessions forever.
+         */
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * Maximum number of chat sessions kept.
+         */
+        private int maxSessions = 10_000;
+
+        /**
+         * File the in-memory store saves sessions to on shutdown and restores them from on
+         * startup. Empty disables the snapshot.
+         */
+        private String snapshotPath = "data/sessions.bin";
+
+        public SessionStoreType getStore() {
+            return store;
+        }
+
+        public void setStore(SessionStoreType store) {
+            this.store = store;
+        }
+
+        public String getSqlitePath() {
+            return sqlitePath;
+        }
+
+        public void setSqlitePath(String sqlitePath) {
+            this.sqlitePath = sqlitePath;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public String getSnapshotPath() {
+            return snapshotPath;
+        }
+
+        public void setSnapshotPath(String snapshotPath) {
+            this.snapshotPath = snapshotPath;
+        }
+    }
+
+    public static class Prefetch {
+
+        /**
+         * Download every client's plan on a schedule so /training is served from memory.
+         */
+        private boolean enabled;
+
+        /**
+         * When to prefetch, as a Spring cron expression.
+         */
+        private String cron = "0 0 6 * * *";
+
+        /**
+         * Time zone the cron expression is evaluated in.
+         */
+        private String zone = "UTC";
+
+        /**
+         * How long after a prefetch the plan is answered from memory. Once it is older than
+         * google.sheets.cache.ttl, each answer triggers a background reload, so the coach's
+         * edits show up one request later.
+         */
+        private Duration warmTtl = Duration.ofHours(24);
+
+        /**
+         * Also send the day's workout to every client whose chat is known.
+         */
+        private boolean push;
+
+        /**
+         * Maximum number of plans downloaded or pushed at the same time.
+         */
+        private int concurrency = 8;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public String getZone() {
+            return zone;
+        }
+
+        public void setZone(String zone) {
+            this.zone = zone;
+        }
+
+        public Duration getWarmTtl() {
+            return warmTtl;
+        }
+
+        public void setWarmTtl(Duration warmTtl) {
+            this.warmTtl = warmTtl;
+        }
+
+        public boolean isPush() {
+            return push;
+        }
+
+        public void setPush(boolean push) {
+            this.push = push;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+    }
+
+    public enum Mode {
+        WEBHOOK,
+        POLLING
+    }
+
+    public enum SessionStoreType {
+        MEMORY,
+        SQLITE
+    }
+
+    public enum Backpressure {
+        /**
+         * Answer the webhook with 503 so that Telegram redelivers the update later.
+         */
+        REJECT,
+        /**
+         * Hold the webhook request until there is room in the queue, then reject.
+         */
+        BLOCK,
+        /**
+         * Acknowledge the update and discard it.
+         */
+        DROP
+    }
 }
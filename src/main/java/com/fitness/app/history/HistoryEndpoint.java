@@ -0,0 +1,79 @@
+package com.fitness.app.history;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.ExerciseResultStorage;
+import com.fitness.app.service.SheetsApiWorksheetReader;
+import com.fitness.app.service.SheetsApiWorksheetReader.ExerciseResult;
+import com.fitness.app.service.SheetsApiWorksheetReader.WorksheetResults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code /actuator/history}: GET shows the size of the local workout history, POST rebuilds it
+ * from the results column of every worksheet of every client's spreadsheet. Worksheets are
+ * taken in spreadsheet order, oldest first. Local entries the sheets cannot know about yet,
+ * those recorded while the rebuild runs and those whose result is still waiting to be written,
+ * are kept.
+ */
+@Component
+@Endpoint(id = "history")
+public class HistoryEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryEndpoint.class);
+
+    private final WorkoutHistoryStore historyStore;
+    private final SheetsApiWorksheetReader sheetsApiReader;
+    private final ExerciseResultStorage exerciseResultStorage;
+    private final TelegramBotProperties properties;
+
+    public HistoryEndpoint(WorkoutHistoryStore historyStore,
+                           SheetsApiWorksheetReader sheetsApiReader,
+                           ExerciseResultStorage exerciseResultStorage,
+                           TelegramBotProperties properties) {
+        this.historyStore = historyStore;
+        this.sheetsApiReader = sheetsApiReader;
+        this.exerciseResultStorage = exerciseResultStorage;
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public WorkoutHistoryStore.Stats stats() {
+        return historyStore.stats();
+    }
+
+    @WriteOperation
+    public WorkoutHistoryStore.Stats rebuild() {
+        Set<String> spreadsheets = properties.getClients() == null
+            ? Set.of()
+            : new LinkedHashSet<>(properties.getClients().values());
+        long startedAt = System.currentTimeMillis();
+        // Taken before the sheets are read: a result flushed in between is then either in the
+        // sheet or still known as pending.
+        Map<String, Set<String>> pendingValues = exerciseResultStorage.getPendingValues();
+        Map<String, List<HistoryEntry>> entries = new LinkedHashMap<>();
+        for (String spreadsheetId : spreadsheets) {
+            List<HistoryEntry> clientEntries = new ArrayList<>();
+            for (WorksheetResults worksheet : sheetsApiReader.readAllResults(spreadsheetId)) {
+                for (ExerciseResult result : worksheet.results()) {
+                    clientEntries.add(HistoryEntry.parse(0, worksheet.title(), result.exercise(), result.result()));
+                }
+            }
+            entries.put(spreadsheetId, clientEntries);
+        }
+        historyStore.replaceAll(entries, startedAt, pendingValues);
+        WorkoutHistoryStore.Stats stats = historyStore.stats();
+        log.info("Rebuilt workout history from {} spreadsheets: {}", spreadsheets.size(), stats);
+        return stats;
+    }
+}
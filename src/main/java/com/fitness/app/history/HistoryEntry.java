@@ -0,0 +1,69 @@
+package com.fitness.app.history;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One recorded result of an exercise. {@code weight} and {@code repetitions} are parsed from
+ * the free-text value where possible and {@code null} otherwise. {@code recordedAt} is 0 for
+ * entries rebuilt from the sheets, where the time of the result is unknown.
+ */
+public record HistoryEntry(long recordedAt, String session, String exercise, String value,
+                           Double weight, Integer repetitions) {
+
+    private static final String NUMBER = "(\\d+(?:[.,]\\d+)?)";
+    private static final Pattern WEIGHT_WITH_UNIT = Pattern.compile(NUMBER + "\\s*(?:кг|kg)");
+    private static final Pattern WEIGHT_BY_REPS = Pattern.compile(NUMBER + "\\s*(?:кг|kg)?\\s*[xх×*]\\s*(\\d+)");
+    private static final Pattern REPS_ONLY = Pattern.compile("\\d+");
+
+    /**
+     * Parses values such as {@code 60x8}, {@code 60 кг х 8,8,7}, {@code 3x8 60kg} or a bare
+     * repetition count like {@code 12}. A weight with a unit wins over the left side of
+     * {@code AxB}; the repetitions are the right side of the first {@code AxB}.
+     */
+    public static HistoryEntry parse(long recordedAt, String session, String exercise, String value) {
+        String text = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        Double weight = null;
+        Integer repetitions = null;
+        Matcher pair = WEIGHT_BY_REPS.matcher(text);
+        if (pair.find()) {
+            weight = toDouble(pair.group(1));
+            repetitions = toInteger(pair.group(2));
+        }
+        Matcher withUnit = WEIGHT_WITH_UNIT.matcher(text);
+        if (withUnit.find()) {
+            weight = toDouble(withUnit.group(1));
+        }
+        if (weight == null && repetitions == null && REPS_ONLY.matcher(text).matches()) {
+            repetitions = toInteger(text);
+        }
+        return new HistoryEntry(recordedAt, session, exercise, value, weight, repetitions);
+    }
+
+    /**
+     * Estimated one-repetition maximum (Epley), or {@code null} without weight and repetitions.
+     */
+    public Double estimatedOneRepMax() {
+        if (weight == null || repetitions == null || repetitions <= 0) {
+            return null;
+        }
+        return repetitions == 1 ? weight : weight * (1 + repetitions / 30.0);
+    }
+
+    private static Double toDouble(String number) {
+        try {
+            return Double.valueOf(number.replace(',', '.'));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static Integer toInteger(String number) {
+        try {
+            return Integer.valueOf(number);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
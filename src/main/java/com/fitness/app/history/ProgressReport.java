@@ -0,0 +1,51 @@
+package com.fitness.app.history;
+
+import java.util.List;
+
+/**
+ * Trend and personal records of one exercise, computed from its history in recording order.
+ *
+ * @param bestWeight    entry with the heaviest weight, {@code null} if no weight was parsed
+ * @param bestOneRepMax entry with the highest estimated one-repetition maximum
+ * @param weightChange  latest minus first parsed weight, {@code null} with fewer than two
+ * @param recent        up to {@link #RECENT_ENTRIES} most recent entries, oldest first
+ */
+public record ProgressReport(String exercise,
+                             int entries,
+                             HistoryEntry first,
+                             HistoryEntry latest,
+                             HistoryEntry bestWeight,
+                             HistoryEntry bestOneRepMax,
+                             Double weightChange,
+                             List<HistoryEntry> recent) {
+
+    public static final int RECENT_ENTRIES = 5;
+
+    static ProgressReport of(String exercise, List<HistoryEntry> history) {
+        HistoryEntry bestWeight = null;
+        HistoryEntry bestOneRepMax = null;
+        HistoryEntry firstWeighted = null;
+        HistoryEntry lastWeighted = null;
+        for (HistoryEntry entry : history) {
+            if (entry.weight() != null) {
+                if (firstWeighted == null) {
+                    firstWeighted = entry;
+                }
+                lastWeighted = entry;
+                if (bestWeight == null || entry.weight() > bestWeight.weight()) {
+                    bestWeight = entry;
+                }
+            }
+            Double oneRepMax = entry.estimatedOneRepMax();
+            if (oneRepMax != null && (bestOneRepMax == null || oneRepMax > bestOneRepMax.estimatedOneRepMax())) {
+                bestOneRepMax = entry;
+            }
+        }
+        Double weightChange = firstWeighted != null && lastWeighted != firstWeighted
+            ? lastWeighted.weight() - firstWeighted.weight()
+            : null;
+        List<HistoryEntry> recent = List.copyOf(history.subList(Math.max(0, history.size() - RECENT_ENTRIES), history.size()));
+        return new ProgressReport(exercise, history.size(), history.get(0), history.get(history.size() - 1),
+            bestWeight, bestOneRepMax, weightChange, recent);
+    }
+}
@@ -0,0 +1,309 @@
+package com.fitness.app.history;
+
+import com.fitness.app.config.HistoryProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local workout history: every stored result is appended to a log file and added to an
+ * in-memory index by client and exercise, so progress questions are answered without reading
+ * the sheets. The log is replayed into the index on startup. Clients are identified by their
+ * spreadsheet ID; exercise names are matched case-insensitively.
+ */
+@Component
+public class WorkoutHistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutHistoryStore.class);
+    private static final String SEPARATOR = "\t";
+
+    private final boolean enabled;
+    private final Path path;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Map<String, ExerciseHistory>> index = new HashMap<>();
+    private int entryCount;
+    private FileChannel channel;
+
+    public WorkoutHistoryStore(HistoryProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.path = Path.of(properties.getPath());
+    }
+
+    @PostConstruct
+    void open() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (Files.exists(path)) {
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    LogRecord record = decode(line);
+                    if (record != null && add(index, record.client(), record.entry())) {
+                        entryCount++;
+                    }
+                }
+                log.info("Loaded {} workout history entries from {}", entryCount, path);
+            }
+            channel = openChannel();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to open workout history " + path, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to close workout history {}", path, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a result of today's workout, replacing an earlier result of the same exercise from
+     * today so a corrected reply does not count twice. Failures are logged, the result itself is
+     * already in the sheet or its pending queue.
+     */
+    public void record(String client, String exercise, String value) {
+        if (!enabled || exercise == null || exercise.isBlank()) {
+            return;
+        }
+        String session = LocalDate.now(ZoneOffset.UTC).toString();
+        HistoryEntry entry = HistoryEntry.parse(System.currentTimeMillis(), session, exercise.trim(), value);
+        lock.writeLock().lock();
+        try {
+            channel.write(ByteBuffer.wrap(encode(client, entry).getBytes(StandardCharsets.UTF_8)));
+            if (add(index, client, entry)) {
+                entryCount++;
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Unable to add result of {} to the workout history", exercise, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the names of the client's exercises matching the query: the exercise with exactly
+     * that name if there is one, otherwise every exercise whose name contains the query.
+     */
+    public List<String> findExercises(String client, String query) {
+        String key = normalize(query);
+        lock.readLock().lock();
+        try {
+            Map<String, ExerciseHistory> exercises = index.getOrDefault(client, Map.of());
+            ExerciseHistory exact = exercises.get(key);
+            if (exact != null) {
+                return List.of(exact.name);
+            }
+            return exercises.entrySet().stream()
+                .filter(exercise -> exercise.getKey().contains(key))
+                .map(exercise -> exercise.getValue().name)
+                .sorted()
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<ProgressReport> progress(String client, String exercise) {
+        lock.readLock().lock();
+        try {
+            ExerciseHistory history = index.getOrDefault(client, Map.of()).get(normalize(exercise));
+            if (history == null || history.entries.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(ProgressReport.of(history.name, history.entries));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole history, both the file and the index, with the given entries per
+     * client in recording order. Local entries the given ones cannot contain are kept after
+     * them: those recorded at or after {@code since}, when the entries were read, and those
+     * whose value is among the client's {@code pendingValues}, results not written to the sheet
+     * yet, unless the same exercise and value is already among the given entries.
+     */
+    public void replaceAll(Map<String, List<HistoryEntry>> entriesByClient, long since,
+                           Map<String, Set<String>> pendingValues) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Map<String, ExerciseHistory>> rebuilt = new HashMap<>();
+        int count = 0;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        lock.writeLock().lock();
+        try {
+            Map<String, List<HistoryEntry>> merged = new LinkedHashMap<>();
+            entriesByClient.forEach((client, entries) -> merged.put(client, new ArrayList<>(entries)));
+            index.forEach((client, exercises) -> merged.computeIfAbsent(client, key -> new ArrayList<>())
+                .addAll(localOnly(exercises, entriesByClient.getOrDefault(client, List.of()), since,
+                    pendingValues.getOrDefault(client, Set.of()))));
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, List<HistoryEntry>> client : merged.entrySet()) {
+                    for (HistoryEntry entry : client.getValue()) {
+                        writer.write(encode(client.getKey(), entry));
+                        if (add(rebuilt, client.getKey(), entry)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            channel.close();
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                channel = openChannel();
+            }
+            index = rebuilt;
+            entryCount = count;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to rewrite workout history " + path, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<HistoryEntry> localOnly(Map<String, ExerciseHistory> exercises, List<HistoryEntry> read,
+                                                long since, Set<String> pendingValues) {
+        Set<String> readResults = new HashSet<>();
+        read.forEach(entry -> readResults.add(normalize(entry.exercise()) + SEPARATOR + entry.value()));
+        List<HistoryEntry> kept = new ArrayList<>();
+        for (ExerciseHistory history : exercises.values()) {
+            for (HistoryEntry entry : history.entries) {
+                boolean pending = entry.recordedAt() > 0 && pendingValues.contains(entry.value())
+                    && !readResults.contains(normalize(entry.exercise()) + SEPARATOR + entry.value());
+                if (entry.recordedAt() >= since || pending) {
+                    kept.add(entry);
+                }
+            }
+        }
+        kept.sort(Comparator.comparingLong(HistoryEntry::recordedAt));
+        return kept;
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            int exercises = index.values().stream().mapToInt(Map::size).sum();
+            return new Stats(index.size(), exercises, entryCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the entry to the index. A recorded result replaces the one recorded earlier for the
+     * same exercise and session, which is how later lines of the log override earlier ones on
+     * replay. Returns {@code false} when an entry was replaced rather than added.
+     */
+    private static boolean add(Map<String, Map<String, ExerciseHistory>> target, String client, HistoryEntry entry) {
+        List<HistoryEntry> entries = target.computeIfAbsent(client, key -> new HashMap<>())
+            .computeIfAbsent(normalize(entry.exercise()), key -> new ExerciseHistory(entry.exercise()))
+            .entries;
+        boolean replaced = entry.recordedAt() > 0 && entries.removeIf(existing ->
+            existing.recordedAt() > 0 && Objects.equals(existing.session(), entry.session()));
+        entries.add(entry);
+        return !replaced;
+    }
+
+    static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT).replace('ё', 'е').replaceAll("\\s+", " ");
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String encode(String client, HistoryEntry entry) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        return entry.recordedAt() + SEPARATOR + client
+            + SEPARATOR + base64.encodeToString(nullToEmpty(entry.session()).getBytes(StandardCharsets.UTF_8))
+            + SEPARATOR + base64.encodeToString(entry.exercise().getBytes(StandardCharsets.UTF_8))
+            + SEPARATOR + base64.encodeToString(nullToEmpty(entry.value()).getBytes(StandardCharsets.UTF_8))
+            + "\n";
+    }
+
+    private LogRecord decode(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        String[] parts = line.split(SEPARATOR, -1);
+        try {
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Expected 5 fields but found " + parts.length);
+            }
+            Base64.Decoder base64 = Base64.getDecoder();
+            HistoryEntry entry = HistoryEntry.parse(
+                Long.parseLong(parts[0]),
+                new String(base64.decode(parts[2]), StandardCharsets.UTF_8),
+                new String(base64.decode(parts[3]), StandardCharsets.UTF_8),
+                new String(base64.decode(parts[4]), StandardCharsets.UTF_8));
+            return new LogRecord(parts[1], entry);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Skipping corrupted workout history record in {}: {}", path, line, ex);
+            return null;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    public record Stats(int clients, int exercises, int entries) {
+    }
+
+    private record LogRecord(String client, HistoryEntry entry) {
+    }
+
+    private static final class ExerciseHistory {
+
+        private final String name;
+        private final List<HistoryEntry> entries = new ArrayList<>();
+
+        private ExerciseHistory(String name) {
+            this.name = name;
+        }
+    }
+}
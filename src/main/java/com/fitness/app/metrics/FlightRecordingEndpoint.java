@@ -0,0 +1,163 @@
+package com.fitness.app.metrics;
+
+import com.fitness.app.config.FlightRecorderProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * {@code /actuator/flightrecording}: POST starts a flight recording with the configured JFR
+ * settings plus the {@link StageEvent}s, optionally for a given {@code duration}; DELETE stops
+ * it and writes the file; GET shows the state and the file of the latest recording. Only one
+ * recording runs at a time, none runs longer than {@code flight-recorder.max-duration}, and only
+ * the latest {@code flight-recorder.max-files} files are kept. A recording still running at
+ * shutdown is stopped and written.
+ */
+@Component
+@Endpoint(id = "flightrecording")
+public class FlightRecordingEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecordingEndpoint.class);
+    private static final String FILE_PREFIX = "fitness-";
+    private static final String FILE_SUFFIX = ".jfr";
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final String settings;
+    private final Duration maxDuration;
+    private final int maxFiles;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Recording recording;
+
+    public FlightRecordingEndpoint(FlightRecorderProperties properties) {
+        this.directory = Path.of(properties.getDirectory());
+        this.settings = properties.getSettings();
+        this.maxDuration = properties.getMaxDuration();
+        this.maxFiles = Math.max(1, properties.getMaxFiles());
+    }
+
+    @ReadOperation
+    public RecordingStatus status() {
+        lock.lock();
+        try {
+            return describe();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @WriteOperation
+    public RecordingStatus start(@Nullable Duration duration) {
+        lock.lock();
+        try {
+            if (recording != null && recording.getState() == RecordingState.RUNNING) {
+                return describe();
+            }
+            close();
+            Duration limit = duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+            Path file = directory.resolve(FILE_PREFIX + FILE_TIMESTAMP.format(Instant.now()) + FILE_SUFFIX);
+            Files.createDirectories(directory);
+            deleteOldRecordings(maxFiles - 1);
+            Recording started = new Recording(Configuration.getConfiguration(settings));
+            started.setName("fitness");
+            started.setToDisk(true);
+            started.setDestination(file);
+            started.setDuration(limit);
+            started.start();
+            recording = started;
+            log.info("Flight recording started for up to {}, writing to {}", limit, file);
+            return describe();
+        } catch (IOException | ParseException ex) {
+            throw new IllegalStateException("Unable to start flight recording with settings " + settings, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @DeleteOperation
+    public RecordingStatus stop() {
+        lock.lock();
+        try {
+            if (recording != null && recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+                log.info("Flight recording written to {}", recording.getDestination());
+            }
+            return describe();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lock.lock();
+        try {
+            stop();
+            close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the oldest recording files so at most {@code keep} remain. File names sort by
+     * their start time.
+     */
+    private void deleteOldRecordings(int keep) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+        for (Path old : files.subList(0, Math.max(0, files.size() - keep))) {
+            Files.deleteIfExists(old);
+            log.info("Deleted old flight recording {}", old);
+        }
+    }
+
+    private RecordingStatus describe() {
+        if (recording == null) {
+            return new RecordingStatus(null, null, null);
+        }
+        Path file = recording.getDestination();
+        return new RecordingStatus(recording.getState().name(), recording.getStartTime(),
+            file == null ? null : file.toAbsolutePath().toString());
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public record RecordingStatus(String state, Instant startTime, String file) {
+    }
+}
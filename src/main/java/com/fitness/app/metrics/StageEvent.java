@@ -0,0 +1,115 @@
+package com.fitness.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one stage recorded by {@link StageMetrics}, so update handling
+ * and external calls can be lined up with GC and safepoint pauses in a recording. Each of the
+ * main stages has its own event type; the rest are recorded as {@code com.fitness.Stage}.
+ * Chats are identified by the hash of their ID only.
+ */
+@Category("Fitness")
+@StackTrace(false)
+public abstract class StageEvent extends Event {
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Chat ID Hash")
+    private int chatIdHash;
+
+    @Label("Spreadsheet ID")
+    private String spreadsheetId;
+
+    @Label("Payload Size")
+    @Description("Request or response size as known to the stage: text length, content length or cell count")
+    private long payloadSize;
+
+    @Label("Outcome")
+    private String outcome;
+
+    /**
+     * Creates the event of the stage and starts timing it.
+     */
+    public static StageEvent begin(String stage) {
+        StageEvent event = switch (stage) {
+            case StageMetrics.WEBHOOK_UPDATE -> new WebhookUpdate();
+            case StageMetrics.SHEETS_FETCH -> new SheetFetch();
+            case StageMetrics.SHEETS_PARSE -> new SheetParse();
+            case StageMetrics.TELEGRAM_SEND_MESSAGE -> new TelegramSend();
+            case StageMetrics.TELEGRAM_SET_REACTION -> new TelegramReaction();
+            case StageMetrics.SHEETS_STORE_RESULT, StageMetrics.SHEETS_STORE_RESULTS -> new SheetWrite();
+            default -> new OtherStage();
+        };
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+
+    public StageEvent chat(String chatId) {
+        this.chatIdHash = chatId == null ? 0 : chatId.hashCode();
+        return this;
+    }
+
+    public StageEvent spreadsheet(String spreadsheetId) {
+        this.spreadsheetId = spreadsheetId;
+        return this;
+    }
+
+    public StageEvent payloadSize(long payloadSize) {
+        this.payloadSize = payloadSize;
+        return this;
+    }
+
+    String stage() {
+        return stage;
+    }
+
+    void finish(String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+
+    @Name("com.fitness.WebhookUpdate")
+    @Label("Webhook Update")
+    static final class WebhookUpdate extends StageEvent {
+    }
+
+    @Name("com.fitness.SheetFetch")
+    @Label("Sheet Fetch")
+    static final class SheetFetch extends StageEvent {
+    }
+
+    @Name("com.fitness.SheetParse")
+    @Label("Sheet Parse")
+    static final class SheetParse extends StageEvent {
+    }
+
+    @Name("com.fitness.TelegramSend")
+    @Label("Telegram Send")
+    static final class TelegramSend extends StageEvent {
+    }
+
+    @Name("com.fitness.TelegramReaction")
+    @Label("Telegram Reaction")
+    static final class TelegramReaction extends StageEvent {
+    }
+
+    @Name("com.fitness.SheetWrite")
+    @Label("Sheet Write")
+    static final class SheetWrite extends StageEvent {
+    }
+
+    @Name("com.fitness.Stage")
+    @Label("Stage")
+    static final class OtherStage extends StageEvent {
+    }
+}
@@ -0,0 +1,109 @@
+package com.fitness.app.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the stages of update handling and the external calls they make. Every stage is
+ * recorded in the {@code fitness.stage} timer with a percentile histogram, tagged with the
+ * stage name and whether it succeeded; failures are also counted in {@code fitness.errors} by
+ * exception type. Each recorded stage is also emitted as a {@link StageEvent} to a running
+ * flight recording.
+ */
+@Component
+public class StageMetrics {
+
+    public static final String SHEETS_FETCH = "sheets.fetch";
+    public static final String SHEETS_PARSE = "sheets.parse";
+    public static final String SHEETS_READ_EXERCISES = "sheets.read_exercises";
+    public static final String SHEETS_STORE_RESULT = "sheets.store_result";
+    public static final String SHEETS_STORE_RESULTS = "sheets.store_results";
+    public static final String TELEGRAM_SEND_MESSAGE = "telegram.send_message";
+    public static final String TELEGRAM_SET_REACTION = "telegram.set_reaction";
+    public static final String WEBHOOK_UPDATE = "webhook.update";
+
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+
+    public StageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T record(String stage, Supplier<T> call) {
+        return record(StageEvent.begin(stage), call);
+    }
+
+    /**
+     * Records the stage of an event the caller began and filled with the chat, spreadsheet or
+     * payload size it knows about.
+     */
+    public <T> T record(StageEvent event, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            recordDuration(event, true, System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException ex) {
+            recordDuration(event, false, System.nanoTime() - start);
+            recordError(event.stage(), ex);
+            throw ex;
+        }
+    }
+
+    public void record(String stage, Runnable call) {
+        record(StageEvent.begin(stage), call);
+    }
+
+    public void record(StageEvent event, Runnable call) {
+        record(event, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records a stage that was timed by the caller, e.g. one completed asynchronously.
+     */
+    public void recordDuration(String stage, boolean success, long nanos) {
+        recordDuration(stage, success ? OUTCOME_SUCCESS : OUTCOME_ERROR, nanos);
+    }
+
+    /**
+     * Records a stage timed by the caller and ends its event, begun when the stage started.
+     */
+    public void recordDuration(StageEvent event, boolean success, long nanos) {
+        String outcome = success ? OUTCOME_SUCCESS : OUTCOME_ERROR;
+        event.finish(outcome);
+        recordDuration(event.stage(), outcome, nanos);
+    }
+
+    public void recordError(String stage, Throwable error) {
+        Counter.builder("fitness.errors")
+            .description("Failures by stage and exception type")
+            .tag("stage", stage)
+            .tag("type", error.getClass().getSimpleName())
+            .register(registry)
+            .increment();
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    private void recordDuration(String stage, String outcome, long nanos) {
+        Timer.builder("fitness.stage")
+            .description("Duration of update handling stages and external calls")
+            .tag("stage", stage)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
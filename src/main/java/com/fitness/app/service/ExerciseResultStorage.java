@@ -1,87 +1,197 @@
 package com.fitness.app.service;
 
 import com.fitness.app.config.GoogleSheetsProperties;
-import com.google.auth.oauth2.AccessToken;
-import com.google.auth.oauth2.GoogleCredentials;
+import com.fitness.app.config.RestClientFactory;
+import com.fitness.app.metrics.StageEvent;
+import com.fitness.app.metrics.StageMetrics;
+import com.fitness.app.service.GoogleRequestScheduler.CellValue;
+import com.fitness.app.service.GoogleRequestScheduler.Priority;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
-import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ExerciseResultStorage {
 
     private static final Logger log = LoggerFactory.getLogger(ExerciseResultStorage.class);
     private static final String RESULT_COLUMN = "K";
-    private static final String SHEETS_SCOPE = "https://www.googleapis.com/auth/spreadsheets";
 
     private final RestClient sheetsClient;
-    private final GoogleCredentials credentials;
+    private final GoogleAccessTokenProvider accessTokenProvider;
+    private final boolean writeBehind;
+    private final ResultWriteBehindQueue pendingResults;
+    private final GoogleRequestScheduler requestScheduler;
+    private final StageMetrics stageMetrics;
+    private final AtomicLong resultSequence = new AtomicLong();
 
-    public ExerciseResultStorage(GoogleSheetsProperties properties, RestClient.Builder restClientBuilder) {
-        Assert.hasText(properties.getServiceAccountKeyJson(), "Google service account key must be configured");
-        this.sheetsClient = restClientBuilder.baseUrl("https://sheets.googleapis.com").build();
-        this.credentials = loadCredentials(properties.getServiceAccountKeyJson());
+    public ExerciseResultStorage(GoogleSheetsProperties properties,
+                                 GoogleAccessTokenProvider accessTokenProvider,
+                                 RestClientFactory restClientFactory,
+                                 GoogleRequestScheduler requestScheduler,
+                                 StageMetrics stageMetrics) {
+        this.sheetsClient = restClientFactory.builder(RestClientFactory.GOOGLE_API)
+            .baseUrl(properties.getApiBaseUrl())
+            .build();
+        this.accessTokenProvider = accessTokenProvider;
+        this.requestScheduler = requestScheduler;
+        this.stageMetrics = stageMetrics;
+        GoogleSheetsProperties.WriteBehind writeBehindSettings = properties.getWriteBehind();
+        this.writeBehind = writeBehindSettings.isEnabled();
+        this.pendingResults = new ResultWriteBehindQueue(
+            Path.of(writeBehindSettings.getLogPath()),
+            Path.of(writeBehindSettings.getDeadLetterPath()),
+            writeBehindSettings.getFlushInterval(),
+            writeBehindSettings.getMaxBatchSize(),
+            (spreadsheetId, valuesByRow) -> writeResults(spreadsheetId, valuesByRow, Priority.BACKGROUND));
+        Gauge.builder("fitness.results.pending", this, ExerciseResultStorage::getPendingResultCount)
+            .description("Results accepted locally that are not in the sheet yet")
+            .register(stageMetrics.getRegistry());
     }
 
+    @PostConstruct
+    void startWriteBehind() {
+        pendingResults.start();
+    }
+
+    @PreDestroy
+    void stopWriteBehind() {
+        pendingResults.stop();
+    }
+
+    /**
+     * Stores the result in the result column of the given row. In write-behind mode the value
+     * is only persisted locally here and written to the sheet by the background flusher. The
+     * same happens when the direct write fails, the write circuit breaker is open or no write
+     * quota is left, so a result is never lost because Google is unavailable. While results of
+     * the spreadsheet are queued, new ones are queued behind them, so an older queued value can
+     * never be flushed over a newer one.
+     */
     public void storeResult(String spreadSheetId, int rowNumber, String value) {
         Assert.isTrue(rowNumber > 0, "Row numbers start at 1");
-        String range = RESULT_COLUMN + rowNumber;
-        ValueRangeBody requestBody = new ValueRangeBody(List.of(List.of(value == null ? "" : value)));
+        String result = value == null ? "" : value;
+        StageEvent event = StageEvent.begin(StageMetrics.SHEETS_STORE_RESULT).spreadsheet(spreadSheetId).payloadSize(1);
+        long sequence = resultSequence.incrementAndGet();
+        stageMetrics.record(event, () -> {
+            if (writeBehind || pendingResults.hasPending(spreadSheetId)) {
+                pendingResults.enqueue(spreadSheetId, rowNumber, result, sequence);
+                return;
+            }
+            try {
+                writeResults(spreadSheetId, Map.of(rowNumber, new CellValue(result, sequence)), Priority.INTERACTIVE);
+            } catch (RuntimeException ex) {
+                log.warn("Queueing exercise result for row {} until Google Sheets accepts writes again: {}",
+                    rowNumber, ex.toString());
+                pendingResults.enqueue(spreadSheetId, rowNumber, result, sequence);
+            }
+        });
+    }
+
+    /**
+     * Stores several results of one spreadsheet, keyed by row number, the way
+     * {@link #storeResult} stores one: written with a single {@code values:batchUpdate} call, or
+     * queued locally in write-behind mode, when the write fails and while results of the
+     * spreadsheet are queued.
+     */
+    public void storeResults(String spreadSheetId, Map<Integer, String> valuesByRow) {
+        if (valuesByRow.isEmpty()) {
+            return;
+        }
+        valuesByRow.keySet().forEach(rowNumber -> Assert.isTrue(rowNumber > 0, "Row numbers start at 1"));
+        long sequence = resultSequence.incrementAndGet();
+        if (!writeBehind && !pendingResults.hasPending(spreadSheetId)) {
+            Map<Integer, CellValue> cells = new LinkedHashMap<>();
+            valuesByRow.forEach((rowNumber, value) -> cells.put(rowNumber, new CellValue(value == null ? "" : value, sequence)));
+            try {
+                writeResults(spreadSheetId, cells, Priority.INTERACTIVE);
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Queueing {} exercise results until Google Sheets accepts writes again: {}",
+                    valuesByRow.size(), ex.toString());
+            }
+        }
+        valuesByRow.forEach((rowNumber, value) ->
+            pendingResults.enqueue(spreadSheetId, rowNumber, value == null ? "" : value, sequence));
+    }
+
+    /**
+     * Writes several results of one spreadsheet through the request scheduler, which merges
+     * them with other writes to the spreadsheet that wait for quota at the same time.
+     */
+    private void writeResults(String spreadSheetId, Map<Integer, CellValue> valuesByRow, Priority priority) {
+        if (valuesByRow.isEmpty()) {
+            return;
+        }
+        try {
+            requestScheduler.write(spreadSheetId, valuesByRow, priority, this::batchUpdate);
+        } catch (CallNotPermittedException ex) {
+            throw new IllegalStateException("Google Sheets writes are paused by the circuit breaker", ex);
+        }
+    }
+
+    /**
+     * Writes the results with a single {@code values:batchUpdate} call.
+     */
+    private void batchUpdate(String spreadSheetId, Map<Integer, String> valuesByRow) {
+        List<ValueRange> data = new ArrayList<>(valuesByRow.size());
+        valuesByRow.forEach((rowNumber, value) -> {
+            Assert.isTrue(rowNumber > 0, "Row numbers start at 1");
+            data.add(new ValueRange(RESULT_COLUMN + rowNumber, List.of(List.of(value == null ? "" : value))));
+        });
         try {
-            sheetsClient.put()
-                .uri(uriBuilder -> uriBuilder
-                    .path("/v4/spreadsheets/{spreadsheetId}/values/{range}")
-                    .queryParam("valueInputOption", "USER_ENTERED")
-                    .build(spreadSheetId, range))
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + fetchAccessToken())
+            StageEvent event = StageEvent.begin(StageMetrics.SHEETS_STORE_RESULTS)
+                .spreadsheet(spreadSheetId)
+                .payloadSize(data.size());
+            stageMetrics.record(event, () -> sheetsClient.post()
+                .uri("/v4/spreadsheets/{spreadsheetId}/values:batchUpdate", spreadSheetId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessTokenProvider.getAccessToken())
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(requestBody)
+                .body(new BatchUpdateBody("USER_ENTERED", data))
                 .retrieve()
-                .toBodilessEntity();
+                .toBodilessEntity());
         } catch (Exception ex) {
-            log.error("Unable to store exercise result for range {}", range, ex);
-            throw new IllegalStateException("Unable to store exercise result in Google Sheets", ex);
+            log.error("Unable to store {} exercise results in spreadsheet {}", data.size(), spreadSheetId, ex);
+            throw new IllegalStateException("Unable to store exercise results in Google Sheets", ex);
         }
     }
 
-    private GoogleCredentials loadCredentials(String keyJson) {
-        try (InputStream inputStream = new ByteArrayInputStream(keyJson.getBytes(StandardCharsets.UTF_8))) {
-            GoogleCredentials googleCredentials = GoogleCredentials.fromStream(inputStream)
-                .createScoped(Collections.singleton(SHEETS_SCOPE));
-            googleCredentials.refreshIfExpired();
-            return googleCredentials;
-        } catch (IOException ex) {
-            throw new IllegalStateException("Unable to load Google service account credentials", ex);
-        }
+    /**
+     * Values of the results accepted locally that are not in the sheet yet, per spreadsheet.
+     */
+    public Map<String, Set<String>> getPendingValues() {
+        Map<String, Set<String>> values = new HashMap<>();
+        pendingResults.pendingResults().forEach(record ->
+            values.computeIfAbsent(record.spreadsheetId(), key -> new HashSet<>()).add(record.value()));
+        return values;
     }
 
-    private String fetchAccessToken() {
-        try {
-            synchronized (credentials) {
-                credentials.refreshIfExpired();
-                AccessToken token = credentials.getAccessToken();
-                if (token == null || !StringUtils.hasText(token.getTokenValue())) {
-                    throw new IllegalStateException("Unable to obtain access token for Google Sheets");
-                }
-                return token.getTokenValue();
-            }
-        } catch (IOException ex) {
-            throw new IllegalStateException("Unable to refresh Google Sheets access token", ex);
-        }
+    /**
+     * Number of results accepted locally that are not in the sheet yet.
+     */
+    public int getPendingResultCount() {
+        return pendingResults.pendingCount();
+    }
+
+    private record ValueRange(String range, List<List<String>> values) {
     }
 
-    private record ValueRangeBody(List<List<String>> values) {
+    private record BatchUpdateBody(String valueInputOption, List<ValueRange> data) {
     }
 }
@@ -0,0 +1,155 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Supplies OAuth access tokens for the service account. The current token is published through
+ * a volatile field so callers read it without locking. A background task refreshes it well
+ * before it expires; callers only refresh inline when that task has not managed to, for example
+ * after repeated failures.
+ * <p>
+ * The service account key is checked to be present at construction but only parsed on first
+ * use, normally by the background task, so loading the credentials does not add to startup time.
+ */
+@Component
+public class GoogleAccessTokenProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleAccessTokenProvider.class);
+    private static final String SHEETS_SCOPE = "https://www.googleapis.com/auth/spreadsheets";
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+    private static final Duration EXPIRY_SKEW = Duration.ofSeconds(30);
+
+    private final String serviceAccountKeyJson;
+    private final Duration refreshMargin;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("google-token-refresh").daemon().factory());
+    private GoogleCredentials credentials;
+    private volatile AccessToken current;
+
+    public GoogleAccessTokenProvider(GoogleSheetsProperties properties) {
+        Assert.hasText(properties.getServiceAccountKeyJson(), "Google service account key must be configured");
+        this.serviceAccountKeyJson = properties.getServiceAccountKeyJson();
+        this.refreshMargin = properties.getAccessTokenRefreshMargin();
+    }
+
+    @PostConstruct
+    void start() {
+        refresher.execute(this::refreshInBackground);
+    }
+
+    @PreDestroy
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Returns a token that is valid for at least a few more seconds.
+     */
+    public String getAccessToken() {
+        AccessToken token = current;
+        if (isUsable(token)) {
+            return token.getTokenValue();
+        }
+        return refreshInline();
+    }
+
+    private String refreshInline() {
+        refreshLock.lock();
+        try {
+            AccessToken token = current;
+            if (!isUsable(token)) {
+                token = refresh();
+            }
+            return token.getTokenValue();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void refreshInBackground() {
+        Duration nextRefresh;
+        refreshLock.lock();
+        try {
+            nextRefresh = untilRefreshDue(refresh());
+        } catch (RuntimeException ex) {
+            log.warn("Background refresh of the Google access token failed, retrying in {}", RETRY_DELAY, ex);
+            nextRefresh = RETRY_DELAY;
+        } finally {
+            refreshLock.unlock();
+        }
+        try {
+            refresher.schedule(this::refreshInBackground, nextRefresh.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            log.debug("Token refresher is shut down", ex);
+        }
+    }
+
+    /**
+     * Callers hold {@link #refreshLock}.
+     */
+    private AccessToken refresh() {
+        if (credentials == null) {
+            credentials = loadCredentials(serviceAccountKeyJson);
+        }
+        try {
+            credentials.refresh();
+            AccessToken token = credentials.getAccessToken();
+            if (token == null || !StringUtils.hasText(token.getTokenValue())) {
+                throw new IllegalStateException("Unable to obtain access token for Google Sheets");
+            }
+            current = token;
+            return token;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to refresh Google Sheets access token", ex);
+        }
+    }
+
+    private Duration untilRefreshDue(AccessToken token) {
+        Date expiration = token.getExpirationTime();
+        if (expiration == null) {
+            return refreshMargin;
+        }
+        Duration untilExpiry = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis());
+        Duration due = untilExpiry.minus(refreshMargin);
+        return due.compareTo(RETRY_DELAY) < 0 ? RETRY_DELAY : due;
+    }
+
+    private boolean isUsable(AccessToken token) {
+        if (token == null) {
+            return false;
+        }
+        Date expiration = token.getExpirationTime();
+        return expiration == null || expiration.getTime() - System.currentTimeMillis() > EXPIRY_SKEW.toMillis();
+    }
+
+    private GoogleCredentials loadCredentials(String keyJson) {
+        try (InputStream inputStream = new ByteArrayInputStream(keyJson.getBytes(StandardCharsets.UTF_8))) {
+            return GoogleCredentials.fromStream(inputStream)
+                .createScoped(Collections.singleton(SHEETS_SCOPE));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to load Google service account credentials", ex);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Circuit breakers in front of Google. Reads and writes get separate breakers, so a failing
+ * write path does not stop plans from being served and vice versa. An open breaker fails calls
+ * immediately instead of letting update threads wait for timeouts; callers fall back to the
+ * last good plan or the local pending result queue. State and call counts are published as
+ * {@code resilience4j.circuitbreaker.*} metrics.
+ * <p>
+ * Permanent client errors (a deleted or unshared spreadsheet, a bad range) are not counted as
+ * failures: they concern one client's sheet, not Google's health, and must not open the breaker
+ * all clients share. Quota errors are not counted either; {@link GoogleRequestScheduler} backs
+ * off on them, and an open breaker would only turn its retries into immediate failures.
+ */
+@Component
+public class GoogleCircuitBreakers {
+
+    public static final String SHEETS_READ = "google-sheets-read";
+    public static final String SHEETS_WRITE = "google-sheets-write";
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleCircuitBreakers.class);
+
+    private final CircuitBreaker read;
+    private final CircuitBreaker write;
+
+    public GoogleCircuitBreakers(GoogleSheetsProperties properties, MeterRegistry meterRegistry) {
+        GoogleSheetsProperties.CircuitBreaker settings = properties.getCircuitBreaker();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+            .slidingWindowSize(settings.getSlidingWindowSize())
+            .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+            .failureRateThreshold(settings.getFailureRateThreshold())
+            .slowCallDurationThreshold(settings.getSlowCallDurationThreshold())
+            .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+            .waitDurationInOpenState(settings.getWaitDurationInOpenState())
+            .permittedNumberOfCallsInHalfOpenState(settings.getPermittedCallsInHalfOpenState())
+            .recordException(error -> !isPermanentClientError(error) && !GoogleRequestScheduler.isQuotaExceeded(error))
+            .build());
+        this.read = create(registry, SHEETS_READ);
+        this.write = create(registry, SHEETS_WRITE);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    }
+
+    public CircuitBreaker read() {
+        return read;
+    }
+
+    public CircuitBreaker write() {
+        return write;
+    }
+
+    /**
+     * Whether the error, or one of its causes, is a 4xx answer that a retry will not fix.
+     * Rate limiting, quota errors, request timeouts and expired credentials are not permanent.
+     */
+    public static boolean isPermanentClientError(Throwable error) {
+        if (GoogleRequestScheduler.isQuotaExceeded(error)) {
+            return false;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException http) {
+                int status = http.getStatusCode().value();
+                return status != HttpStatus.TOO_MANY_REQUESTS.value()
+                    && status != HttpStatus.REQUEST_TIMEOUT.value()
+                    && status != HttpStatus.UNAUTHORIZED.value();
+            }
+        }
+        return false;
+    }
+
+    private static CircuitBreaker create(CircuitBreakerRegistry registry, String name) {
+        CircuitBreaker breaker = registry.circuitBreaker(name);
+        breaker.getEventPublisher().onStateTransition(event ->
+            log.warn("Circuit breaker {} changed from {} to {}", name,
+                event.getStateTransition().getFromState(), event.getStateTransition().getToState()));
+        return breaker;
+    }
+}
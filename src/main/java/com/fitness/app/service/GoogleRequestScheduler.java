@@ -0,0 +1,408 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import com.fitness.app.metrics.StageMetrics;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Central gate for Google traffic. All clients share one service account and with it the
+ * per-minute read and write quotas, so every request takes a token from the read or the write
+ * bucket before it goes through the matching circuit breaker. User-facing requests are served
+ * ahead of background work (prefetch, pending result flushes, history rebuilds) and give up
+ * after {@code quota.max-wait} so their callers can fall back; background requests wait as long
+ * as needed and are retried after quota errors.
+ * <p>
+ * A 429 or RESOURCE_EXHAUSTED answer pauses the bucket for a jittered exponential backoff and
+ * halves its rate, which recovers step by step with every successful request. Writes of the same
+ * priority to the same spreadsheet that wait for a token at the same time are merged into one
+ * batch.
+ */
+@Component
+public class GoogleRequestScheduler {
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(String spreadsheetId, Map<Integer, String> valuesByRow);
+    }
+
+    /**
+     * A value for a row's cell with the sequence number it was accepted under. When writes are
+     * merged, the value with the higher sequence wins, whichever write joined the batch last.
+     */
+    public record CellValue(String value, long sequence) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleRequestScheduler.class);
+    private static final double MIN_RATE_FACTOR = 0.1;
+    private static final double RATE_RECOVERY_STEP = 0.05;
+
+    private final QuotaBucket reads;
+    private final QuotaBucket writes;
+    private final GoogleCircuitBreakers circuitBreakers;
+    private final Duration maxWait;
+    private final int maxRetries;
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Map<WriteKey, PendingWrite> pendingWrites = new HashMap<>();
+    private final Counter coalescedWrites;
+
+    public GoogleRequestScheduler(GoogleSheetsProperties properties,
+                                  GoogleCircuitBreakers circuitBreakers,
+                                  StageMetrics stageMetrics) {
+        GoogleSheetsProperties.Quota settings = properties.getQuota();
+        MeterRegistry registry = stageMetrics.getRegistry();
+        this.reads = new QuotaBucket("read", settings.getReadsPerMinute(), settings, registry);
+        this.writes = new QuotaBucket("write", settings.getWritesPerMinute(), settings, registry);
+        this.circuitBreakers = circuitBreakers;
+        this.maxWait = settings.getMaxWait();
+        this.maxRetries = settings.getMaxRetries();
+        this.coalescedWrites = Counter.builder("fitness.google.writes.coalesced")
+            .description("Result writes merged into a batch of the same spreadsheet that was already waiting")
+            .register(registry);
+    }
+
+    /**
+     * Runs one read request against the read quota and circuit breaker.
+     */
+    public <T> T read(Priority priority, Supplier<T> request) {
+        return execute(reads, circuitBreakers.read(), priority, request);
+    }
+
+    /**
+     * Writes the values through {@code writer} against the write quota and circuit breaker. If a
+     * write of the same priority to the same spreadsheet is already waiting for quota, the values
+     * join it instead and this call returns when that batch was written; of two values for a row
+     * the one with the higher sequence wins. Writes of different priorities are never merged, so
+     * a user-facing write does not wait behind a background batch, nor gives up while its value
+     * is still in one.
+     */
+    public void write(String spreadsheetId, Map<Integer, CellValue> valuesByRow, Priority priority, BatchWriter writer) {
+        WriteKey key = new WriteKey(spreadsheetId, priority);
+        PendingWrite batch;
+        boolean leader;
+        pendingLock.lock();
+        try {
+            batch = pendingWrites.get(key);
+            leader = batch == null;
+            if (leader) {
+                batch = new PendingWrite(key);
+                pendingWrites.put(key, batch);
+            } else {
+                coalescedWrites.increment();
+            }
+            for (Map.Entry<Integer, CellValue> cell : valuesByRow.entrySet()) {
+                batch.values.merge(cell.getKey(), cell.getValue(), GoogleRequestScheduler::newer);
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+
+        if (!leader) {
+            awaitBatch(batch, priority);
+            return;
+        }
+        PendingWrite ownBatch = batch;
+        try {
+            execute(writes, circuitBreakers.write(), priority, () -> {
+                writer.write(spreadsheetId, detach(ownBatch));
+                return null;
+            });
+            ownBatch.done.complete(null);
+        } catch (RuntimeException ex) {
+            detach(ownBatch);
+            ownBatch.done.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private <T> T execute(QuotaBucket bucket, CircuitBreaker breaker, Priority priority, Supplier<T> request) {
+        for (int attempt = 0; ; attempt++) {
+            bucket.acquire(priority, priority == Priority.INTERACTIVE ? maxWait : null);
+            try {
+                T result = breaker.executeSupplier(request);
+                bucket.onSuccess();
+                return result;
+            } catch (RuntimeException ex) {
+                if (!isQuotaExceeded(ex)) {
+                    throw ex;
+                }
+                Duration pause = bucket.onQuotaExceeded();
+                boolean retry = priority == Priority.BACKGROUND && attempt < maxRetries;
+                log.warn("Google {} quota exceeded, pausing {} ms{}", bucket.kind, pause.toMillis(),
+                    retry ? ", retrying" : "");
+                if (!retry) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the batch's values out of the queue of waiting writes, so later writes start a new
+     * batch. Returns the same values when called again.
+     */
+    private Map<Integer, String> detach(PendingWrite batch) {
+        pendingLock.lock();
+        try {
+            if (batch.detached == null) {
+                pendingWrites.remove(batch.key, batch);
+                Map<Integer, String> values = new LinkedHashMap<>();
+                batch.values.forEach((row, cell) -> values.put(row, cell.value()));
+                batch.detached = Collections.unmodifiableMap(values);
+            }
+            return batch.detached;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void awaitBatch(PendingWrite batch, Priority priority) {
+        try {
+            if (priority == Priority.INTERACTIVE) {
+                batch.done.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            } else {
+                batch.done.get();
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Unable to write to Google Sheets", cause);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Google write quota exhausted, waited " + maxWait, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a Google Sheets write", ex);
+        }
+    }
+
+    private static CellValue newer(CellValue current, CellValue candidate) {
+        return candidate.sequence() >= current.sequence() ? candidate : current;
+    }
+
+    static boolean isQuotaExceeded(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException http) {
+                if (http.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                    return true;
+                }
+                String body = http.getResponseBodyAsString();
+                if (body.contains("RESOURCE_EXHAUSTED") || body.contains("rateLimitExceeded")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private record WriteKey(String spreadsheetId, Priority priority) {
+    }
+
+    private static final class PendingWrite {
+
+        private final WriteKey key;
+        private final Map<Integer, CellValue> values = new LinkedHashMap<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private Map<Integer, String> detached;
+
+        private PendingWrite(WriteKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Token bucket for one quota. Waiting user-facing requests block background requests from
+     * taking tokens; quota errors pause the bucket and lower its rate.
+     */
+    static final class QuotaBucket {
+
+        private final String kind;
+        private final double perMinute;
+        private final double capacity;
+        private final Duration initialBackoff;
+        private final Duration maxBackoff;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final Map<Priority, Counter> granted = new EnumMap<>(Priority.class);
+        private final Map<Priority, Timer> waits = new EnumMap<>(Priority.class);
+        private final Counter exceeded;
+        private double tokens;
+        private long refilledAt;
+        private long pausedUntil;
+        private double rateFactor = 1;
+        private int consecutiveErrors;
+        private int interactiveWaiting;
+
+        QuotaBucket(String kind, int perMinute, GoogleSheetsProperties.Quota settings, MeterRegistry registry) {
+            this.kind = kind;
+            this.perMinute = Math.max(1, perMinute);
+            this.capacity = Math.max(1, settings.getBurst());
+            this.initialBackoff = settings.getInitialBackoff();
+            this.maxBackoff = settings.getMaxBackoff();
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+            for (Priority priority : Priority.values()) {
+                String tag = priority.name().toLowerCase(Locale.ROOT);
+                granted.put(priority, Counter.builder("fitness.google.quota.requests")
+                    .description("Google requests let through by the quota scheduler")
+                    .tag("quota", kind)
+                    .tag("priority", tag)
+                    .register(registry));
+                waits.put(priority, Timer.builder("fitness.google.quota.wait")
+                    .description("Time Google requests waited for quota")
+                    .tag("quota", kind)
+                    .tag("priority", tag)
+                    .register(registry));
+            }
+            this.exceeded = Counter.builder("fitness.google.quota.exceeded")
+                .description("Google answers with 429 or RESOURCE_EXHAUSTED")
+                .tag("quota", kind)
+                .register(registry);
+            Gauge.builder("fitness.google.quota.limit", this, QuotaBucket::currentPerMinute)
+                .description("Requests per minute currently allowed, lowered after quota errors")
+                .tag("quota", kind)
+                .register(registry);
+            Gauge.builder("fitness.google.quota.available", this, QuotaBucket::available)
+                .description("Tokens that can be taken right now")
+                .tag("quota", kind)
+                .register(registry);
+        }
+
+        /**
+         * Waits for a token, for at most {@code maxWait} when it is given.
+         */
+        void acquire(Priority priority, Duration maxWait) {
+            long start = System.nanoTime();
+            long deadline = maxWait == null ? Long.MAX_VALUE : start + maxWait.toNanos();
+            boolean interactive = priority == Priority.INTERACTIVE;
+            lock.lock();
+            try {
+                if (interactive) {
+                    interactiveWaiting++;
+                }
+                try {
+                    while (true) {
+                        long now = System.nanoTime();
+                        refill(now);
+                        boolean turn = interactive || interactiveWaiting == 0;
+                        if (turn && now >= pausedUntil && tokens >= 1) {
+                            tokens -= 1;
+                            break;
+                        }
+                        long remaining = deadline - now;
+                        if (remaining <= 0) {
+                            throw new IllegalStateException("Google " + kind + " quota exhausted, waited " + maxWait);
+                        }
+                        if (turn) {
+                            long untilToken = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano());
+                            changed.awaitNanos(Math.min(remaining, Math.max(1, Math.max(untilToken, pausedUntil - now))));
+                        } else {
+                            changed.awaitNanos(remaining);
+                        }
+                    }
+                } finally {
+                    if (interactive && --interactiveWaiting == 0) {
+                        changed.signalAll();
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for Google " + kind + " quota", ex);
+            } finally {
+                lock.unlock();
+            }
+            waits.get(priority).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            granted.get(priority).increment();
+        }
+
+        void onSuccess() {
+            lock.lock();
+            try {
+                consecutiveErrors = 0;
+                rateFactor = Math.min(1, rateFactor + RATE_RECOVERY_STEP);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Pauses the bucket and halves its rate. Returns the pause.
+         */
+        Duration onQuotaExceeded() {
+            exceeded.increment();
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                refill(now);
+                consecutiveErrors++;
+                long backoff = initialBackoff.toNanos() << Math.min(consecutiveErrors - 1, 20);
+                backoff = Math.min(backoff, maxBackoff.toNanos());
+                long pause = (long) (backoff * ThreadLocalRandom.current().nextDouble(0.5, 1.5));
+                pausedUntil = Math.max(pausedUntil, now + pause);
+                tokens = Math.min(tokens, 0);
+                rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor / 2);
+                return Duration.ofNanos(pause);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double currentPerMinute() {
+            lock.lock();
+            try {
+                return perMinute * rateFactor;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double available() {
+            lock.lock();
+            try {
+                refill(System.nanoTime());
+                return Math.max(0, Math.floor(tokens));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private double tokensPerNano() {
+            return perMinute * rateFactor / 60_000_000_000d;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano());
+            refilledAt = now;
+        }
+    }
+}
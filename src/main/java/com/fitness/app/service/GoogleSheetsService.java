@@ -1,28 +1,77 @@
 package com.fitness.app.service;
 
 import com.fitness.app.config.GoogleSheetsProperties;
+import com.fitness.app.config.RestClientFactory;
+import com.fitness.app.metrics.StageEvent;
+import com.fitness.app.metrics.StageMetrics;
+import com.fitness.app.service.GoogleRequestScheduler.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class GoogleSheetsService {
 
+    private static final Logger log = LoggerFactory.getLogger(GoogleSheetsService.class);
+
+    /**
+     * 1-based number of the first row that may hold an exercise.
+     */
+    static final int FIRST_EXERCISE_ROW = 3;
+
     private final GoogleSheetsProperties properties;
     private final RestClient restClient;
+    private final SheetsApiWorksheetReader sheetsApiReader;
+    private final WorksheetCache<List<Exercise>> exerciseCache;
+    private final StageMetrics stageMetrics;
+    private final GoogleRequestScheduler requestScheduler;
+    private final Map<String, List<Exercise>> lastGoodPlans = new ConcurrentHashMap<>();
+    private final Counter stalePlans;
 
-    public GoogleSheetsService(GoogleSheetsProperties properties, RestClient.Builder restClientBuilder) {
+    public GoogleSheetsService(GoogleSheetsProperties properties,
+                               RestClientFactory restClientFactory,
+                               SheetsApiWorksheetReader sheetsApiReader,
+                               GoogleRequestScheduler requestScheduler,
+                               StageMetrics stageMetrics) {
         this.properties = properties;
-        this.restClient = restClientBuilder.baseUrl("https://docs.google.com").build();
+        this.restClient = restClientFactory.builder(RestClientFactory.GOOGLE_EXPORT)
+            .baseUrl(properties.getExportBaseUrl())
+            .build();
+        this.sheetsApiReader = sheetsApiReader;
+        this.exerciseCache = new WorksheetCache<>(
+            properties.getCache().getTtl(),
+            properties.getCache().getMaximumSize());
+        this.stageMetrics = stageMetrics;
+        this.requestScheduler = requestScheduler;
+        this.stalePlans = Counter.builder("fitness.sheets.stale_plans")
+            .description("Plans served from the last good copy because Google could not be read")
+            .register(stageMetrics.getRegistry());
+        registerCacheMetrics(stageMetrics.getRegistry());
     }
 
     /**
@@ -30,8 +79,65 @@ public class GoogleSheetsService {
      * the cell values in display order.
      */
     public List<List<String>> readWorksheet(String spreadSheetId) {
-        String csvPayload = fetchWorksheetCsv(spreadSheetId);
-        try (CSVParser parser = CSVParser.parse(csvPayload, CSVFormat.DEFAULT)) {
+        return fetchWorksheetCsv(spreadSheetId, GoogleSheetsService::parseWorksheet, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Reads all exercises defined in the worksheet. Exercises start on the 3rd row (index 2)
+     * and use columns C-J. Parsed plans are cached per spreadsheet and worksheet gid.
+     */
+    public List<Exercise> readExercises(String spreadSheetId) {
+        return stageMetrics.record(StageMetrics.SHEETS_READ_EXERCISES, () -> exerciseCache.get(
+            spreadSheetId, properties.getWorksheetGid(),
+            () -> downloadExercises(spreadSheetId, Priority.INTERACTIVE)));
+    }
+
+    /**
+     * Reads the plan like {@link #readExercises}, but when Google cannot be read, the read
+     * circuit breaker is open or no read quota is left, returns the last plan that was read successfully, marked as
+     * stale. Fails only if the spreadsheet was never read since startup.
+     */
+    public WorkoutPlan readPlan(String spreadSheetId) {
+        try {
+            return new WorkoutPlan(readExercises(spreadSheetId), false);
+        } catch (RuntimeException ex) {
+            List<Exercise> lastGood = lastGoodPlans.get(spreadSheetId);
+            if (lastGood == null) {
+                throw ex;
+            }
+            log.warn("Serving the last good plan of {}: {}", spreadSheetId, ex.toString());
+            stalePlans.increment();
+            return new WorkoutPlan(lastGood, true);
+        }
+    }
+
+    /**
+     * Downloads the plan even if it is cached. Until {@code serveStaleFor} after the download,
+     * reads answer from the cached plan even once it is older than the cache TTL and reload it
+     * in the background. The download is background work and waits behind user-facing reads
+     * for quota.
+     */
+    public List<Exercise> refreshExercises(String spreadSheetId, Duration serveStaleFor) {
+        return stageMetrics.record(StageMetrics.SHEETS_READ_EXERCISES, () -> exerciseCache.refresh(
+            spreadSheetId, properties.getWorksheetGid(),
+            () -> downloadExercises(spreadSheetId, Priority.BACKGROUND), serveStaleFor));
+    }
+
+    public WorksheetCache.Stats getExerciseCacheStats() {
+        return exerciseCache.stats();
+    }
+
+    private List<Exercise> downloadExercises(String spreadSheetId, Priority priority) {
+        String worksheetGid = properties.getWorksheetGid();
+        List<Exercise> exercises = properties.getReadMode() == GoogleSheetsProperties.ReadMode.SHEETS_API
+            ? sheetsApiReader.readExercises(spreadSheetId, List.of(worksheetGid), priority).get(worksheetGid)
+            : fetchWorksheetCsv(spreadSheetId, GoogleSheetsService::parseExercises, priority);
+        lastGoodPlans.put(spreadSheetId, exercises);
+        return exercises;
+    }
+
+    static List<List<String>> parseWorksheet(Reader csv) throws IOException {
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(csv)) {
             List<List<String>> rows = new ArrayList<>();
             for (CSVRecord record : parser) {
                 List<String> row = new ArrayList<>();
@@ -39,51 +145,114 @@ public class GoogleSheetsService {
                 rows.add(Collections.unmodifiableList(row));
             }
             return Collections.unmodifiableList(rows);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to parse worksheet data", e);
         }
     }
 
     /**
-     * Reads all exercises defined in the worksheet. Exercises start on the 3rd row (index 2)
-     * and use columns C-J.
+     * Builds exercises while the CSV is being read. Only rows from {@link #FIRST_EXERCISE_ROW}
+     * on and columns C-J are kept, every other cell is dropped as soon as its record is parsed.
      */
-    public List<Exercise> readExercises(String spreadSheetId) {
-        List<List<String>> rows = readWorksheet(spreadSheetId);
-        if (rows.size() <= 2) {
-            return Collections.emptyList();
+    static List<Exercise> parseExercises(Reader csv) throws IOException {
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(csv)) {
+            List<Exercise> exercises = new ArrayList<>();
+            for (CSVRecord record : parser) {
+                long rowNumber = record.getRecordNumber();
+                if (rowNumber < FIRST_EXERCISE_ROW) {
+                    continue;
+                }
+                String name = getCell(record, 2);
+                if (name.isBlank()) {
+                    continue;
+                }
+                exercises.add(new Exercise(
+                    (int) rowNumber,
+                    name,
+                    getCell(record, 3),
+                    getCell(record, 4),
+                    getCell(record, 5),
+                    getCell(record, 6),
+                    getCell(record, 7),
+                    getCell(record, 8),
+                    getCell(record, 9)));
+            }
+            return Collections.unmodifiableList(exercises);
         }
+    }
 
-        List<Exercise> exercises = new ArrayList<>();
-        for (int rowIndex = 2; rowIndex < rows.size(); rowIndex++) {
-            List<String> row = rows.get(rowIndex);
-            String name = getCell(row, 2);
-            if (name == null || name.isBlank()) {
-                continue;
+    /**
+     * Downloads the worksheet CSV export and hands the response stream to {@code reader}
+     * without buffering the whole payload. The time until the response headers arrive is
+     * recorded as the fetch stage, reading and parsing the body as the parse stage. Waiting for
+     * read quota is not part of either.
+     */
+    private <T> T fetchWorksheetCsv(String spreadSheetId, CsvReader<T> reader, Priority priority) {
+        return requestScheduler.read(priority, () -> exchangeWorksheetCsv(spreadSheetId, reader));
+    }
+
+    private <T> T exchangeWorksheetCsv(String spreadSheetId, CsvReader<T> reader) {
+        StageEvent fetchEvent = StageEvent.begin(StageMetrics.SHEETS_FETCH).spreadsheet(spreadSheetId);
+        long start = System.nanoTime();
+        boolean[] responded = new boolean[1];
+        try {
+            return restClient.get()
+                .uri(uriBuilder -> uriBuilder
+                    .path("/spreadsheets/d/{spreadsheetId}/gviz/tq")
+                    .queryParam("tqx", "out:csv")
+                    .queryParam("gid", properties.getWorksheetGid())
+                    .build(spreadSheetId))
+                .exchange((request, response) -> {
+                    responded[0] = true;
+                    boolean success = !response.getStatusCode().isError();
+                    long contentLength = response.getHeaders().getContentLength();
+                    stageMetrics.recordDuration(fetchEvent.payloadSize(contentLength), success, System.nanoTime() - start);
+                    if (!success) {
+                        IllegalStateException error = new IllegalStateException(
+                            "Unable to download worksheet: HTTP " + response.getStatusCode().value(),
+                            response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                                ? new HttpClientErrorException(response.getStatusCode())
+                                : null);
+                        stageMetrics.recordError(StageMetrics.SHEETS_FETCH, error);
+                        throw error;
+                    }
+                    MediaType contentType = response.getHeaders().getContentType();
+                    Charset charset = contentType != null && contentType.getCharset() != null
+                        ? contentType.getCharset()
+                        : StandardCharsets.UTF_8;
+                    StageEvent parseEvent = StageEvent.begin(StageMetrics.SHEETS_PARSE)
+                        .spreadsheet(spreadSheetId)
+                        .payloadSize(contentLength);
+                    return stageMetrics.record(parseEvent, () -> {
+                        try (Reader csv = new InputStreamReader(response.getBody(), charset)) {
+                            return reader.read(csv);
+                        } catch (IOException e) {
+                            throw new IllegalStateException("Unable to parse worksheet data", e);
+                        }
+                    });
+                });
+        } catch (RuntimeException ex) {
+            if (!responded[0]) {
+                stageMetrics.recordDuration(fetchEvent, false, System.nanoTime() - start);
+                stageMetrics.recordError(StageMetrics.SHEETS_FETCH, ex);
             }
-            exercises.add(new Exercise(
-                rowIndex + 1,
-                name,
-                getCell(row, 3),
-                getCell(row, 4),
-                getCell(row, 5),
-                getCell(row, 6),
-                getCell(row, 7),
-                getCell(row, 8),
-                getCell(row, 9)));
+            throw ex;
         }
-        return Collections.unmodifiableList(exercises);
     }
 
-    private String fetchWorksheetCsv(String spreadSheetId) {
-        return restClient.get()
-            .uri(uriBuilder -> uriBuilder
-                .path("/spreadsheets/d/{spreadsheetId}/gviz/tq")
-                .queryParam("tqx", "out:csv")
-                .queryParam("gid", properties.getWorksheetGid())
-                .build(spreadSheetId))
-            .retrieve()
-            .body(String.class);
+    private void registerCacheMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("fitness.sheets.cache.requests", exerciseCache, cache -> cache.stats().hits())
+            .description("Exercise cache lookups")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("fitness.sheets.cache.requests", exerciseCache, cache -> cache.stats().misses())
+            .description("Exercise cache lookups")
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("fitness.sheets.cache.evictions", exerciseCache, cache -> cache.stats().evictions())
+            .description("Exercise cache entries dropped by TTL or size")
+            .register(registry);
+        Gauge.builder("fitness.sheets.cache.size", exerciseCache, cache -> cache.stats().size())
+            .description("Worksheets currently cached")
+            .register(registry);
     }
 
     private CellCoordinate parseCellReference(String cellReference) {
@@ -117,17 +286,29 @@ public class GoogleSheetsService {
         return result - 1;
     }
 
-    private String getCell(List<String> row, int index) {
-        if (row == null || index < 0 || index >= row.size()) {
+    private static String getCell(CSVRecord record, int index) {
+        if (index < 0 || index >= record.size()) {
             return "";
         }
-        String value = row.get(index);
+        String value = record.get(index);
         return value == null ? "" : value;
     }
 
+    @FunctionalInterface
+    interface CsvReader<T> {
+        T read(Reader csv) throws IOException;
+    }
+
     private record CellCoordinate(int rowIndex, int columnIndex) {
     }
 
+    /**
+     * Exercises of a plan; {@code stale} when they come from the last good copy instead of the
+     * sheet.
+     */
+    public record WorkoutPlan(List<Exercise> exercises, boolean stale) {
+    }
+
     public record Exercise(
         int rowNumber,
         String name,
@@ -0,0 +1,128 @@
+package com.fitness.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only log of exercise results that have been accepted but not yet written to Google
+ * Sheets. Every record is forced to disk before {@link #append} returns. The log is compacted
+ * by rewriting it with the still pending records after each successful flush.
+ * <p>
+ * Not thread safe, callers synchronize access.
+ */
+final class ResultWriteAheadLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultWriteAheadLog.class);
+    private static final String SEPARATOR = "\t";
+
+    private final Path path;
+    private FileChannel channel;
+
+    ResultWriteAheadLog(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens the log for appending and returns the records left over from a previous run in the
+     * order they were written.
+     */
+    List<PendingResult> open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        List<PendingResult> records = new ArrayList<>();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                PendingResult record = decode(line);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        channel = openChannel();
+        return records;
+    }
+
+    void append(PendingResult record) throws IOException {
+        channel.write(ByteBuffer.wrap(encode(record).getBytes(StandardCharsets.UTF_8)));
+        channel.force(false);
+    }
+
+    /**
+     * Atomically replaces the log with the given records.
+     */
+    void rewrite(Collection<PendingResult> records) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (PendingResult record : records) {
+                writer.write(encode(record));
+            }
+        }
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            tempChannel.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = openChannel();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private String encode(PendingResult record) {
+        String value = Base64.getEncoder().encodeToString(record.value().getBytes(StandardCharsets.UTF_8));
+        return record.spreadsheetId() + SEPARATOR + record.rowNumber() + SEPARATOR + value + "\n";
+    }
+
+    private PendingResult decode(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        String[] parts = line.split(SEPARATOR, -1);
+        try {
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected 3 fields but found " + parts.length);
+            }
+            String value = new String(Base64.getDecoder().decode(parts[2]), StandardCharsets.UTF_8);
+            return new PendingResult(parts[0], Integer.parseInt(parts[1]), value, 0);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Skipping corrupted pending result record in {}: {}", path, line, ex);
+            return null;
+        }
+    }
+
+    /**
+     * A result waiting for its sheet write. The sequence orders results of the same cell that
+     * were accepted in this run; it is not logged, replayed records get 0 and so lose against
+     * anything accepted after the restart.
+     */
+    record PendingResult(String spreadsheetId, int rowNumber, String value, long sequence) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.fitness.app.service;
+
+import com.fitness.app.service.GoogleRequestScheduler.CellValue;
+import com.fitness.app.service.ResultWriteAheadLog.PendingResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts exercise results into a durable local log and writes them to Google Sheets in the
+ * background, one batch request per spreadsheet. Later results for the same cell replace
+ * earlier ones that have not been flushed yet. Batches Google rejects permanently are moved
+ * to a dead-letter log instead of being retried forever.
+ */
+final class ResultWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultWriteBehindQueue.class);
+
+    private final ResultWriteAheadLog writeAheadLog;
+    private final ResultWriteAheadLog deadLetterLog;
+    private final BatchWriter batchWriter;
+    private final Duration flushInterval;
+    private final int maxBatchSize;
+    private final Map<CellKey, PendingResult> pending = new LinkedHashMap<>();
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    ResultWriteBehindQueue(Path logPath, Path deadLetterPath, Duration flushInterval, int maxBatchSize,
+                           BatchWriter batchWriter) {
+        this.writeAheadLog = new ResultWriteAheadLog(logPath);
+        this.deadLetterLog = new ResultWriteAheadLog(deadLetterPath);
+        this.flushInterval = flushInterval;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchWriter = batchWriter;
+    }
+
+    /**
+     * Replays results left in the log by a previous run and starts the background flusher.
+     */
+    void start() {
+        synchronized (lock) {
+            try {
+                List<PendingResult> replayed = writeAheadLog.open();
+                replayed.forEach(record -> pending.put(CellKey.of(record), record));
+                if (!replayed.isEmpty()) {
+                    log.info("Replayed {} pending exercise results from the write-ahead log", replayed.size());
+                }
+                int deadLetters = deadLetterLog.open().size();
+                if (deadLetters > 0) {
+                    log.warn("{} exercise results rejected by Google are kept in the dead-letter log", deadLetters);
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to open the exercise result write-ahead log", ex);
+            }
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("result-flusher").daemon().factory());
+        long intervalMillis = Math.max(1, flushInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Makes the result durable locally. The call returns once the record is on disk; the sheet
+     * is updated by the next flush. A result older than the one already pending for the cell is
+     * ignored.
+     */
+    void enqueue(String spreadsheetId, int rowNumber, String value, long sequence) {
+        PendingResult record = new PendingResult(spreadsheetId, rowNumber, value, sequence);
+        synchronized (lock) {
+            PendingResult current = pending.get(CellKey.of(record));
+            if (current != null && current.sequence() > sequence) {
+                return;
+            }
+            try {
+                writeAheadLog.append(record);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to persist exercise result locally", ex);
+            }
+            pending.remove(CellKey.of(record));
+            pending.put(CellKey.of(record), record);
+        }
+    }
+
+    /**
+     * Whether results of the spreadsheet are pending, including those a running flush is
+     * writing. Until they are acknowledged, newer results of the spreadsheet have to go through
+     * the queue too, or the flush could overwrite them with older values.
+     */
+    boolean hasPending(String spreadsheetId) {
+        synchronized (lock) {
+            for (PendingResult record : pending.values()) {
+                if (record.spreadsheetId().equals(spreadsheetId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    List<PendingResult> pendingResults() {
+        synchronized (lock) {
+            return List.copyOf(pending.values());
+        }
+    }
+
+    int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes every pending result, grouped per spreadsheet. Results of a failed batch stay
+     * pending and are retried on the next flush, unless Google rejected them permanently.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            Map<String, List<PendingResult>> batches = snapshot();
+            for (Map.Entry<String, List<PendingResult>> batch : batches.entrySet()) {
+                List<PendingResult> records = batch.getValue();
+                for (int from = 0; from < records.size(); from += maxBatchSize) {
+                    List<PendingResult> chunk = records.subList(from, Math.min(records.size(), from + maxBatchSize));
+                    Map<Integer, CellValue> valuesByRow = new LinkedHashMap<>();
+                    chunk.forEach(record -> valuesByRow.put(record.rowNumber(), new CellValue(record.value(), record.sequence())));
+                    try {
+                        batchWriter.write(batch.getKey(), valuesByRow);
+                    } catch (RuntimeException ex) {
+                        if (GoogleCircuitBreakers.isPermanentClientError(ex)) {
+                            log.error("Google rejected {} exercise results for spreadsheet {}, moving them to the dead-letter log",
+                                chunk.size(), batch.getKey(), ex);
+                            deadLetter(chunk);
+                            continue;
+                        }
+                        log.warn("Unable to flush {} exercise results for spreadsheet {}, will retry: {}",
+                            chunk.size(), batch.getKey(), ex.getMessage());
+                        break;
+                    }
+                    acknowledge(chunk);
+                }
+            }
+        }
+    }
+
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(flushInterval.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+        synchronized (lock) {
+            try {
+                writeAheadLog.close();
+                deadLetterLog.close();
+            } catch (IOException ex) {
+                log.warn("Unable to close the exercise result write-ahead log", ex);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Exercise result flush failed", ex);
+        }
+    }
+
+    private Map<String, List<PendingResult>> snapshot() {
+        Map<String, List<PendingResult>> batches = new LinkedHashMap<>();
+        synchronized (lock) {
+            for (PendingResult record : pending.values()) {
+                batches.computeIfAbsent(record.spreadsheetId(), key -> new ArrayList<>()).add(record);
+            }
+        }
+        return batches;
+    }
+
+    private void acknowledge(List<PendingResult> written) {
+        synchronized (lock) {
+            written.forEach(record -> pending.remove(CellKey.of(record), record));
+            try {
+                writeAheadLog.rewrite(pending.values());
+            } catch (IOException ex) {
+                log.warn("Unable to compact the exercise result write-ahead log", ex);
+            }
+        }
+    }
+
+    /**
+     * Appends the results to the dead-letter log before removing them from the pending log, so
+     * they are in at least one of the two if the process dies in between.
+     */
+    private void deadLetter(List<PendingResult> rejected) {
+        synchronized (lock) {
+            try {
+                for (PendingResult record : rejected) {
+                    deadLetterLog.append(record);
+                }
+            } catch (IOException ex) {
+                log.warn("Unable to write rejected exercise results to the dead-letter log, keeping them pending", ex);
+                return;
+            }
+        }
+        acknowledge(rejected);
+    }
+
+    @FunctionalInterface
+    interface BatchWriter {
+        void write(String spreadsheetId, Map<Integer, CellValue> valuesByRow);
+    }
+
+    private record CellKey(String spreadsheetId, int rowNumber) {
+        private static CellKey of(PendingResult record) {
+            return new CellKey(record.spreadsheetId(), record.rowNumber());
+        }
+    }
+}
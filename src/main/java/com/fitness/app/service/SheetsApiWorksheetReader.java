@@ -0,0 +1,318 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import com.fitness.app.config.RestClientFactory;
+import com.fitness.app.metrics.StageEvent;
+import com.fitness.app.metrics.StageMetrics;
+import com.fitness.app.service.GoogleRequestScheduler.Priority;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads exercise ranges through the Sheets API {@code values:batchGet} endpoint with the
+ * service account. Only columns C-J from {@link GoogleSheetsService#FIRST_EXERCISE_ROW} on are
+ * requested, so the response does not grow with unrelated columns, and private spreadsheets
+ * shared with the service account can be read as well.
+ */
+@Component
+public class SheetsApiWorksheetReader {
+
+    private static final String FIRST_EXERCISE_COLUMN = "C";
+    private static final String LAST_EXERCISE_COLUMN = "J";
+    private static final String RESULT_COLUMN = "K";
+    private static final int RESULT_OFFSET = 8;
+
+    private final RestClient sheetsClient;
+    private final GoogleAccessTokenProvider accessTokenProvider;
+    private final StageMetrics stageMetrics;
+    private final GoogleRequestScheduler requestScheduler;
+    private final Map<String, Map<String, String>> worksheetTitles = new ConcurrentHashMap<>();
+
+    public SheetsApiWorksheetReader(GoogleSheetsProperties properties,
+                                    GoogleAccessTokenProvider accessTokenProvider,
+                                    RestClientFactory restClientFactory,
+                                    GoogleRequestScheduler requestScheduler,
+                                    StageMetrics stageMetrics) {
+        this.sheetsClient = restClientFactory.builder(RestClientFactory.GOOGLE_API)
+            .baseUrl(properties.getApiBaseUrl())
+            .build();
+        this.accessTokenProvider = accessTokenProvider;
+        this.stageMetrics = stageMetrics;
+        this.requestScheduler = requestScheduler;
+    }
+
+    /**
+     * Reads the exercises of one worksheet.
+     */
+    public List<Exercise> readExercises(String spreadSheetId, String worksheetGid) {
+        return readExercises(spreadSheetId, List.of(worksheetGid)).get(worksheetGid);
+    }
+
+    /**
+     * Reads the exercises of several worksheets of one spreadsheet with a single request.
+     * The result is keyed by worksheet gid in the order the gids were given.
+     */
+    public Map<String, List<Exercise>> readExercises(String spreadSheetId, Collection<String> worksheetGids) {
+        return readExercises(spreadSheetId, worksheetGids, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Like {@link #readExercises(String, Collection)}, with the quota priority of the caller.
+     */
+    public Map<String, List<Exercise>> readExercises(String spreadSheetId, Collection<String> worksheetGids,
+                                                     Priority priority) {
+        Assert.notEmpty(worksheetGids, "At least one worksheet gid is required");
+        List<String> gids = List.copyOf(worksheetGids);
+        BatchGetResponse response;
+        try {
+            response = fetch(spreadSheetId, exerciseRanges(spreadSheetId, gids, priority), priority);
+        } catch (RuntimeException ex) {
+            if (!isBadRequest(ex)) {
+                throw ex;
+            }
+            // A worksheet renamed since its title was remembered no longer parses as a range:
+            // look the titles up again and retry once.
+            worksheetTitles.remove(spreadSheetId);
+            response = fetch(spreadSheetId, exerciseRanges(spreadSheetId, gids, priority), priority);
+        }
+        List<ValueRange> valueRanges = response == null || response.valueRanges() == null
+            ? List.of()
+            : response.valueRanges();
+        if (valueRanges.size() != gids.size()) {
+            throw new IllegalStateException("Expected " + gids.size() + " ranges from Google Sheets but got "
+                + valueRanges.size());
+        }
+        StageEvent parseEvent = StageEvent.begin(StageMetrics.SHEETS_PARSE)
+            .spreadsheet(spreadSheetId)
+            .payloadSize(valueRanges.stream().mapToLong(range -> range.values() == null ? 0 : range.values().size()).sum());
+        return stageMetrics.record(parseEvent, () -> {
+            Map<String, List<Exercise>> exercises = new LinkedHashMap<>();
+            for (int index = 0; index < gids.size(); index++) {
+                exercises.put(gids.get(index), toExercises(valueRanges.get(index).values()));
+            }
+            return Collections.unmodifiableMap(exercises);
+        });
+    }
+
+    /**
+     * Reads exercise names and results (columns C and K) from every worksheet of the
+     * spreadsheet with a single request, worksheets in spreadsheet order. Rows without a name
+     * or without a result are skipped. Both requests are background work for the read quota.
+     */
+    public List<WorksheetResults> readAllResults(String spreadSheetId) {
+        List<String> titles = fetchSheets(spreadSheetId, Priority.BACKGROUND).stream().map(SheetProperties::title).toList();
+        if (titles.isEmpty()) {
+            return List.of();
+        }
+        List<String> ranges = titles.stream()
+            .map(title -> quote(title) + FIRST_EXERCISE_COLUMN + GoogleSheetsService.FIRST_EXERCISE_ROW + ":" + RESULT_COLUMN)
+            .toList();
+        BatchGetResponse response = fetch(spreadSheetId, ranges, Priority.BACKGROUND);
+        List<ValueRange> valueRanges = response == null || response.valueRanges() == null
+            ? List.of()
+            : response.valueRanges();
+        List<WorksheetResults> worksheets = new ArrayList<>(valueRanges.size());
+        for (int index = 0; index < Math.min(titles.size(), valueRanges.size()); index++) {
+            List<List<String>> rows = valueRanges.get(index).values();
+            List<ExerciseResult> results = new ArrayList<>();
+            for (int row = 0; rows != null && row < rows.size(); row++) {
+                String name = getCell(rows.get(row), 0);
+                String result = getCell(rows.get(row), RESULT_OFFSET);
+                if (!name.isBlank() && !result.isBlank()) {
+                    results.add(new ExerciseResult(GoogleSheetsService.FIRST_EXERCISE_ROW + row, name, result));
+                }
+            }
+            worksheets.add(new WorksheetResults(titles.get(index), List.copyOf(results)));
+        }
+        return worksheets;
+    }
+
+    /**
+     * Builds exercises from the rows of a C-J range starting at {@link GoogleSheetsService#FIRST_EXERCISE_ROW}.
+     * The API drops trailing empty cells and rows, so short rows are padded with empty values.
+     */
+    static List<Exercise> toExercises(List<List<String>> rows) {
+        if (rows == null) {
+            return List.of();
+        }
+        List<Exercise> exercises = new ArrayList<>();
+        for (int index = 0; index < rows.size(); index++) {
+            List<String> row = rows.get(index);
+            String name = getCell(row, 0);
+            if (name.isBlank()) {
+                continue;
+            }
+            exercises.add(new Exercise(
+                GoogleSheetsService.FIRST_EXERCISE_ROW + index,
+                name,
+                getCell(row, 1),
+                getCell(row, 2),
+                getCell(row, 3),
+                getCell(row, 4),
+                getCell(row, 5),
+                getCell(row, 6),
+                getCell(row, 7)));
+        }
+        return Collections.unmodifiableList(exercises);
+    }
+
+    private List<String> exerciseRanges(String spreadSheetId, List<String> gids, Priority priority) {
+        List<String> ranges = new ArrayList<>(gids.size());
+        for (String gid : gids) {
+            ranges.add(exerciseRange(resolveTitle(spreadSheetId, gid, priority)));
+        }
+        return ranges;
+    }
+
+    private static boolean isBadRequest(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException http) {
+                return http.getStatusCode().value() == HttpStatus.BAD_REQUEST.value();
+            }
+        }
+        return false;
+    }
+
+    private BatchGetResponse fetch(String spreadSheetId, List<String> ranges, Priority priority) {
+        return requestScheduler.read(priority, () -> batchGet(spreadSheetId, ranges));
+    }
+
+    private BatchGetResponse batchGet(String spreadSheetId, List<String> ranges) {
+        StageEvent fetchEvent = StageEvent.begin(StageMetrics.SHEETS_FETCH)
+            .spreadsheet(spreadSheetId)
+            .payloadSize(ranges.size());
+        // Ranges contain worksheet titles, so they are passed as URI variables, which are
+        // encoded strictly: a literal '+' would be read as a space and braces as variables.
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("spreadsheetId", spreadSheetId);
+        Object[] rangeParams = new Object[ranges.size()];
+        for (int index = 0; index < ranges.size(); index++) {
+            variables.put("range" + index, ranges.get(index));
+            rangeParams[index] = "{range" + index + "}";
+        }
+        return stageMetrics.record(fetchEvent, () -> {
+            try {
+                return sheetsClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                        .path("/v4/spreadsheets/{spreadsheetId}/values:batchGet")
+                        .queryParam("ranges", rangeParams)
+                        .queryParam("majorDimension", "ROWS")
+                        .queryParam("valueRenderOption", "FORMATTED_VALUE")
+                        .build(variables))
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessTokenProvider.getAccessToken())
+                    .retrieve()
+                    .body(BatchGetResponse.class);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Unable to read worksheet ranges from Google Sheets", ex);
+            }
+        });
+    }
+
+    /**
+     * Ranges address worksheets by title, while the configuration uses the gid from the sheet
+     * URL. Titles are looked up once per spreadsheet and remembered until a range built from them
+     * is rejected, e.g. after the worksheet was renamed. The lookup runs outside the map, so a
+     * request waiting for quota does not block readers of other requests; concurrent lookups may
+     * both fetch, whichever finishes last is kept.
+     */
+    private String resolveTitle(String spreadSheetId, String worksheetGid, Priority priority) {
+        Map<String, String> titles = worksheetTitles.get(spreadSheetId);
+        String title = titles == null ? null : titles.get(worksheetGid);
+        if (title == null) {
+            // Unknown or a worksheet added since the titles were fetched: look them up again.
+            titles = fetchTitles(spreadSheetId, priority);
+            worksheetTitles.put(spreadSheetId, titles);
+            title = titles.get(worksheetGid);
+        }
+        if (title == null) {
+            throw new IllegalStateException("Worksheet with gid " + worksheetGid + " not found in " + spreadSheetId);
+        }
+        return title;
+    }
+
+    private Map<String, String> fetchTitles(String spreadSheetId, Priority priority) {
+        Map<String, String> titles = new ConcurrentHashMap<>();
+        for (SheetProperties sheet : fetchSheets(spreadSheetId, priority)) {
+            titles.put(String.valueOf(sheet.sheetId()), sheet.title());
+        }
+        return titles;
+    }
+
+    private List<SheetProperties> fetchSheets(String spreadSheetId, Priority priority) {
+        SpreadsheetResponse response = requestScheduler.read(priority, () -> {
+            try {
+                return sheetsClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                        .path("/v4/spreadsheets/{spreadsheetId}")
+                        .queryParam("fields", "sheets.properties(sheetId,title)")
+                        .build(spreadSheetId))
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessTokenProvider.getAccessToken())
+                    .retrieve()
+                    .body(SpreadsheetResponse.class);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Unable to read worksheet titles from Google Sheets", ex);
+            }
+        });
+        List<SheetProperties> sheets = new ArrayList<>();
+        if (response != null && response.sheets() != null) {
+            for (Sheet sheet : response.sheets()) {
+                if (sheet.properties() != null && sheet.properties().title() != null) {
+                    sheets.add(sheet.properties());
+                }
+            }
+        }
+        return sheets;
+    }
+
+    private static String exerciseRange(String worksheetTitle) {
+        return quote(worksheetTitle)
+            + FIRST_EXERCISE_COLUMN + GoogleSheetsService.FIRST_EXERCISE_ROW + ":" + LAST_EXERCISE_COLUMN;
+    }
+
+    private static String quote(String worksheetTitle) {
+        return "'" + worksheetTitle.replace("'", "''") + "'!";
+    }
+
+    private static String getCell(List<String> row, int index) {
+        if (row == null || index >= row.size()) {
+            return "";
+        }
+        String value = row.get(index);
+        return value == null ? "" : value;
+    }
+
+    public record WorksheetResults(String title, List<ExerciseResult> results) {
+    }
+
+    public record ExerciseResult(int rowNumber, String exercise, String result) {
+    }
+
+    private record BatchGetResponse(List<ValueRange> valueRanges) {
+    }
+
+    private record ValueRange(String range, List<List<String>> values) {
+    }
+
+    private record SpreadsheetResponse(List<Sheet> sheets) {
+    }
+
+    private record Sheet(SheetProperties properties) {
+    }
+
+    private record SheetProperties(long sheetId, String title) {
+    }
+}
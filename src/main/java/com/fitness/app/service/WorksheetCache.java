@@ -0,0 +1,221 @@
+package com.fitness.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of parsed worksheets keyed by spreadsheet ID and worksheet gid.
+ * Entries expire after a fixed TTL and the least recently used ones are evicted once the
+ * cache grows past its maximum size. Concurrent lookups of a missing key wait on a single
+ * in-flight load instead of each calling the loader. Entries stored with {@link #refresh} may
+ * be served after they expired while they are reloaded in the background.
+ */
+public final class WorksheetCache<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(WorksheetCache.class);
+
+    private final ConcurrentMap<Key, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public WorksheetCache(Duration ttl, int maximumSize) {
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.maximumSize = Math.max(1, maximumSize);
+    }
+
+    /**
+     * Returns the cached value for the worksheet or loads it with {@code loader}. Failed loads
+     * are not cached; every caller waiting on the failed load receives the same exception.
+     */
+    public V get(String spreadsheetId, String worksheetGid, Supplier<V> loader) {
+        if (ttlNanos <= 0) {
+            misses.increment();
+            return loader.get();
+        }
+        Key key = new Key(spreadsheetId, worksheetGid);
+        while (true) {
+            long now = System.nanoTime();
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired(now)) {
+                hits.increment();
+                entry.lastAccess = now;
+                return join(entry.value);
+            }
+            if (entry != null && entry.canServeStale(now)) {
+                hits.increment();
+                entry.lastAccess = now;
+                revalidate(key, entry, loader);
+                return join(entry.value);
+            }
+
+            Entry<V> loading = new Entry<>(now, ttlNanos, 0);
+            boolean installed = entry == null
+                ? entries.putIfAbsent(key, loading) == null
+                : entries.replace(key, entry, loading);
+            if (!installed) {
+                continue;
+            }
+            if (entry != null) {
+                evictions.increment();
+            }
+            misses.increment();
+            evictIfNecessary();
+            return load(key, loading, loader);
+        }
+    }
+
+    /**
+     * Loads the worksheet unconditionally and caches the result for the default TTL. Until
+     * {@code serveStaleFor} after the load, a lookup of the expired entry still returns it at
+     * once and reloads it in the background, so a prefetched plan answers the first request of
+     * the day without a download and edits to the sheet show up one request later.
+     */
+    public V refresh(String spreadsheetId, String worksheetGid, Supplier<V> loader, Duration serveStaleFor) {
+        V value = loader.get();
+        long now = System.nanoTime();
+        Entry<V> refreshed = new Entry<>(now, ttlNanos, now + serveStaleFor.toNanos());
+        refreshed.loadedAt = now;
+        refreshed.value.complete(value);
+        entries.put(new Key(spreadsheetId, worksheetGid), refreshed);
+        evictIfNecessary();
+        return value;
+    }
+
+    public void invalidate(String spreadsheetId, String worksheetGid) {
+        entries.remove(new Key(spreadsheetId, worksheetGid));
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    private V load(Key key, Entry<V> loading, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            loading.loadedAt = System.nanoTime();
+            loading.value.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            // Errors too: an entry left loading never expires and would block every later get.
+            entries.remove(key, loading);
+            loading.value.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Reloads an entry that is served stale, at most once at a time. The reloaded entry keeps the
+     * stale window of the one it replaces; a failed reload leaves the stale value in place for
+     * the next lookup to try again.
+     */
+    private void revalidate(Key key, Entry<V> stale, Supplier<V> loader) {
+        if (!stale.revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("worksheet-revalidate").start(() -> {
+            try {
+                V value = loader.get();
+                long now = System.nanoTime();
+                Entry<V> fresh = new Entry<>(now, ttlNanos, stale.staleUntil);
+                fresh.loadedAt = now;
+                fresh.value.complete(value);
+                entries.replace(key, stale, fresh);
+            } catch (RuntimeException ex) {
+                stale.revalidating.set(false);
+                log.warn("Unable to reload worksheet {} of {}, serving the cached copy", key.worksheetGid(),
+                    key.spreadsheetId(), ex);
+            }
+        });
+    }
+
+    private void evictIfNecessary() {
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(candidate -> {
+            boolean expired = candidate.getValue().isEvictable(now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+        while (entries.size() > maximumSize) {
+            Map.Entry<Key, Entry<V>> eldest = null;
+            for (Map.Entry<Key, Entry<V>> candidate : entries.entrySet()) {
+                if (!candidate.getValue().value.isDone()) {
+                    continue;
+                }
+                if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Unable to load worksheet", ex.getCause());
+        }
+    }
+
+    private record Key(String spreadsheetId, String worksheetGid) {
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+        private final long ttlNanos;
+        private final long staleUntil;
+        private volatile long loadedAt;
+        private volatile long lastAccess;
+
+        /**
+         * {@code staleUntil} is the {@link System#nanoTime} up to which the entry may be served
+         * after it expired, or 0 when it may not.
+         */
+        private Entry(long now, long ttlNanos, long staleUntil) {
+            this.lastAccess = now;
+            this.ttlNanos = ttlNanos;
+            this.staleUntil = staleUntil;
+        }
+
+        private boolean isExpired(long now) {
+            long loaded = loadedAt;
+            return loaded != 0 && now - loaded >= ttlNanos;
+        }
+
+        private boolean canServeStale(long now) {
+            return staleUntil != 0 && now - staleUntil < 0 && isExpired(now)
+                && value.isDone() && !value.isCompletedExceptionally();
+        }
+
+        private boolean isEvictable(long now) {
+            return isExpired(now) && (staleUntil == 0 || now - staleUntil >= 0);
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+}
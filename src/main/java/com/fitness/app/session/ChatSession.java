@@ -0,0 +1,90 @@
+package com.fitness.app.session;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Workout state of one chat: the plan that was sent, which Telegram message shows which
+ * exercise and which exercises already have a result. Exercise numbers are 1-based.
+ */
+public final class ChatSession {
+
+    private final String chatId;
+    private final List<Exercise> exercises;
+    private final IntIntMap exerciseByMessage;
+    private final BitSet completed;
+    private volatile long lastAccessMillis;
+
+    ChatSession(String chatId, List<Exercise> exercises, long nowMillis) {
+        this(chatId, exercises, new IntIntMap(exercises.size()), new BitSet(exercises.size() + 1), nowMillis);
+    }
+
+    ChatSession(String chatId, List<Exercise> exercises, IntIntMap exerciseByMessage, BitSet completed,
+                long lastAccessMillis) {
+        this.chatId = chatId;
+        this.exercises = List.copyOf(exercises);
+        this.exerciseByMessage = exerciseByMessage;
+        this.completed = completed;
+        this.lastAccessMillis = lastAccessMillis;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public List<Exercise> getExercises() {
+        return exercises;
+    }
+
+    /**
+     * Returns the exercise with the given number or {@code null} when the plan has no such
+     * exercise.
+     */
+    public Exercise exercise(int exerciseNumber) {
+        return exerciseNumber >= 1 && exerciseNumber <= exercises.size() ? exercises.get(exerciseNumber - 1) : null;
+    }
+
+    public synchronized void linkMessage(int messageId, int exerciseNumber) {
+        exerciseByMessage.put(messageId, exerciseNumber);
+    }
+
+    /**
+     * Returns the number of the exercise shown in the message, or 0 when the message is not
+     * an exercise message of this session.
+     */
+    public synchronized int exerciseNumberForMessage(int messageId) {
+        return exerciseByMessage.get(messageId, 0);
+    }
+
+    /**
+     * Marks the exercise as done and returns {@code true} when this call completed the last
+     * outstanding exercise of the plan.
+     */
+    public synchronized boolean markCompleted(int exerciseNumber) {
+        if (completed.get(exerciseNumber)) {
+            return false;
+        }
+        completed.set(exerciseNumber);
+        return !exercises.isEmpty() && completed.cardinality() >= exercises.size();
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    void touch(long nowMillis) {
+        lastAccessMillis = nowMillis;
+    }
+
+    synchronized IntIntMap copyMessages() {
+        IntIntMap copy = new IntIntMap(exerciseByMessage.size());
+        exerciseByMessage.forEach(copy::put);
+        return copy;
+    }
+
+    synchronized BitSet copyCompleted() {
+        return (BitSet) completed.clone();
+    }
+}
@@ -0,0 +1,299 @@
+package com.fitness.app.session;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds one {@link ChatSession} per chat in this process. Sessions that were not used for longer than the
+ * configured TTL are dropped, and the least recently used ones are dropped once the store
+ * holds more than the configured maximum. Sessions are written to a binary snapshot on
+ * shutdown and loaded again on startup, so replies to exercise messages keep working across
+ * deploys.
+ */
+@Component
+@ConditionalOnProperty(prefix = "telegram.bot.sessions", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemorySessionStore.class);
+    private static final int SNAPSHOT_MAGIC = 0x46495453;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final ConcurrentMap<String, ChatSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> chatsByUsername = new ConcurrentHashMap<>();
+    private final TelegramBotProperties.Sessions settings;
+
+    public InMemorySessionStore(TelegramBotProperties properties, MeterRegistry meterRegistry) {
+        this.settings = properties.getSessions();
+        Gauge.builder("fitness.sessions.active", sessions, Map::size)
+            .description("Chat sessions held in memory")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void startSession(String chatId, List<Exercise> exercises) {
+        long now = System.currentTimeMillis();
+        sessions.put(chatId, new ChatSession(chatId, exercises, now));
+        evictIdleSessions(now);
+    }
+
+    @Override
+    public void linkMessage(String chatId, int messageId, int exerciseNumber) {
+        findSession(chatId).ifPresent(session -> session.linkMessage(messageId, exerciseNumber));
+    }
+
+    @Override
+    public Optional<Exercise> findExercise(String chatId, int exerciseNumber) {
+        return findSession(chatId).map(session -> session.exercise(exerciseNumber));
+    }
+
+    @Override
+    public int exerciseNumberForMessage(String chatId, int messageId) {
+        return findSession(chatId).map(session -> session.exerciseNumberForMessage(messageId)).orElse(0);
+    }
+
+    @Override
+    public boolean markCompleted(String chatId, int exerciseNumber) {
+        return findSession(chatId).map(session -> session.markCompleted(exerciseNumber)).orElse(false);
+    }
+
+    Optional<ChatSession> findSession(String chatId) {
+        ChatSession session = sessions.get(chatId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            sessions.remove(chatId, session);
+            return Optional.empty();
+        }
+        session.touch(now);
+        return Optional.of(session);
+    }
+
+    @Override
+    public void rememberChat(String username, String chatId) {
+        if (username != null) {
+            chatsByUsername.put(username, chatId);
+        }
+    }
+
+    @Override
+    public Optional<String> findChatId(String username) {
+        return Optional.ofNullable(chatsByUsername.get(username));
+    }
+
+    @Override
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    void evictIdleSessions(long now) {
+        sessions.values().removeIf(session -> isExpired(session, now));
+        int excess = sessions.size() - Math.max(1, settings.getMaxSessions());
+        if (excess > 0) {
+            sessions.values().stream()
+                .sorted(Comparator.comparingLong(ChatSession::getLastAccessMillis))
+                .limit(excess)
+                .toList()
+                .forEach(session -> sessions.remove(session.getChatId(), session));
+        }
+    }
+
+    @PostConstruct
+    void restoreSnapshot() {
+        Path snapshot = snapshotPath();
+        if (snapshot == null || !Files.exists(snapshot)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Read into memory so every length in the file can be checked against the bytes left.
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(snapshot)))) {
+            int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                log.warn("Ignoring session snapshot {} with unknown format", snapshot);
+                return;
+            }
+            int count = readLength(in, 24);
+            for (int i = 0; i < count; i++) {
+                ChatSession session = readSession(in);
+                if (!isExpired(session, now)) {
+                    sessions.put(session.getChatId(), session);
+                }
+            }
+            if (version >= 2) {
+                int chats = readLength(in, 8);
+                for (int i = 0; i < chats; i++) {
+                    chatsByUsername.put(readString(in), readString(in));
+                }
+            }
+            evictIdleSessions(now);
+            log.info("Restored {} chat sessions from {}", sessions.size(), snapshot);
+        } catch (IOException | RuntimeException ex) {
+            sessions.clear();
+            chatsByUsername.clear();
+            log.warn("Unable to restore chat sessions from {}", snapshot, ex);
+        }
+    }
+
+    @PreDestroy
+    void writeSnapshot() {
+        Path snapshot = snapshotPath();
+        if (snapshot == null) {
+            return;
+        }
+        evictIdleSessions(System.currentTimeMillis());
+        List<ChatSession> current = new ArrayList<>(sessions.values());
+        try {
+            Path parent = snapshot.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(current.size());
+                for (ChatSession session : current) {
+                    writeSession(out, session);
+                }
+                Map<String, String> chats = Map.copyOf(chatsByUsername);
+                out.writeInt(chats.size());
+                for (Map.Entry<String, String> chat : chats.entrySet()) {
+                    writeString(out, chat.getKey());
+                    writeString(out, chat.getValue());
+                }
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} chat sessions to {}", current.size(), snapshot);
+        } catch (IOException ex) {
+            log.warn("Unable to save chat sessions to {}", snapshot, ex);
+        }
+    }
+
+    private boolean isExpired(ChatSession session, long now) {
+        long ttl = settings.getTtl().toMillis();
+        return ttl > 0 && now - session.getLastAccessMillis() > ttl;
+    }
+
+    private Path snapshotPath() {
+        return StringUtils.hasText(settings.getSnapshotPath()) ? Path.of(settings.getSnapshotPath()) : null;
+    }
+
+    private void writeSession(DataOutputStream out, ChatSession session) throws IOException {
+        writeString(out, session.getChatId());
+        out.writeLong(session.getLastAccessMillis());
+        List<Exercise> exercises = session.getExercises();
+        out.writeInt(exercises.size());
+        for (Exercise exercise : exercises) {
+            out.writeInt(exercise.rowNumber());
+            writeString(out, exercise.name());
+            writeString(out, exercise.weight());
+            writeString(out, exercise.sets());
+            writeString(out, exercise.repetitions());
+            writeString(out, exercise.reserve());
+            writeString(out, exercise.rest());
+            writeString(out, exercise.videoLink());
+            writeString(out, exercise.comment());
+        }
+        IntIntMap messages = session.copyMessages();
+        out.writeInt(messages.size());
+        IOException[] failure = new IOException[1];
+        messages.forEach((messageId, exerciseNumber) -> {
+            try {
+                out.writeInt(messageId);
+                out.writeInt(exerciseNumber);
+            } catch (IOException ex) {
+                failure[0] = ex;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        long[] completed = session.copyCompleted().toLongArray();
+        out.writeInt(completed.length);
+        for (long word : completed) {
+            out.writeLong(word);
+        }
+    }
+
+    private ChatSession readSession(DataInputStream in) throws IOException {
+        String chatId = readString(in);
+        long lastAccess = in.readLong();
+        int exerciseCount = readLength(in, 36);
+        List<Exercise> exercises = new ArrayList<>(exerciseCount);
+        for (int i = 0; i < exerciseCount; i++) {
+            exercises.add(new Exercise(
+                in.readInt(),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in)));
+        }
+        int messageCount = readLength(in, 8);
+        IntIntMap messages = new IntIntMap(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            messages.put(in.readInt(), in.readInt());
+        }
+        long[] completed = new long[readLength(in, 8)];
+        for (int i = 0; i < completed.length; i++) {
+            completed[i] = in.readLong();
+        }
+        return new ChatSession(chatId, exercises, messages, BitSet.valueOf(completed), lastAccess);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in, 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a length or element count and rejects values the rest of the snapshot cannot hold,
+     * so a truncated or corrupt file fails to restore instead of allocating huge arrays.
+     */
+    private static int readLength(DataInputStream in, int minBytesPerElement) throws IOException {
+        int length = in.readInt();
+        int remaining = in.available();
+        if (length < 0 || (long) length * minBytesPerElement > remaining) {
+            throw new IOException("Corrupt session snapshot: length " + length + " with " + remaining + " bytes left");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,90 @@
+package com.fitness.app.session;
+
+/**
+ * Open addressing map from positive {@code int} keys to {@code int} values without boxing.
+ * Zero is reserved as the empty-slot marker, which suits Telegram message IDs.
+ * <p>
+ * Not thread safe.
+ */
+final class IntIntMap {
+
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+    }
+
+    void put(int key, int value) {
+        if (key <= EMPTY) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        int slot = slot(key, keys);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    int get(int key, int missingValue) {
+        if (key <= EMPTY) {
+            return missingValue;
+        }
+        int slot = slot(key, keys);
+        return keys[slot] == key ? values[slot] : missingValue;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Consumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                int target = slot(oldKeys[slot], keys);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private static int slot(int key, int[] table) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @FunctionalInterface
+    interface Consumer {
+        void accept(int key, int value);
+    }
+}
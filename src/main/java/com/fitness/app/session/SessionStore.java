@@ -0,0 +1,54 @@
+package com.fitness.app.session;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Workout state of every chat: the plan that was sent, which Telegram message shows which
+ * exercise and which exercises already have a result. Exercise numbers are 1-based.
+ * <p>
+ * Implementations that are shared between processes let several bot replicas serve the same
+ * chat, so a reply may reach a different replica than the one that sent the plan.
+ */
+public interface SessionStore {
+
+    /**
+     * Replaces the chat's session with a fresh one for the given plan.
+     */
+    void startSession(String chatId, List<Exercise> exercises);
+
+    /**
+     * Records that the message shows the given exercise. Does nothing when the chat has no
+     * session.
+     */
+    void linkMessage(String chatId, int messageId, int exerciseNumber);
+
+    /**
+     * Returns the exercise with the given number from the chat's current plan.
+     */
+    Optional<Exercise> findExercise(String chatId, int exerciseNumber);
+
+    /**
+     * Returns the number of the exercise shown in the message, or 0 when the message is not
+     * an exercise message of the chat's current session.
+     */
+    int exerciseNumberForMessage(String chatId, int messageId);
+
+    /**
+     * Marks the exercise as done and returns {@code true} when this call completed the last
+     * outstanding exercise of the plan. When several callers complete exercises concurrently,
+     * exactly one of them sees {@code true}.
+     */
+    boolean markCompleted(String chatId, int exerciseNumber);
+
+    /**
+     * Remembers the chat a client talks to the bot from, so the bot can message them first.
+     */
+    void rememberChat(String username, String chatId);
+
+    Optional<String> findChatId(String username);
+
+    int getActiveSessionCount();
+}
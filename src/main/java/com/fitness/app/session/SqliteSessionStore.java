@@ -0,0 +1,347 @@
+package com.fitness.app.session;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.sqlite.SQLiteConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps sessions in a SQLite database in WAL mode, so several bot processes that can reach
+ * the same file share them. Writes run in {@code BEGIN IMMEDIATE} transactions, which take the
+ * database write lock up front; completion marking is therefore atomic across processes.
+ * <p>
+ * Each process uses a single connection guarded by a lock. Reads refresh the session's last
+ * access time only when it is older than {@link #TOUCH_INTERVAL}, so lookups rarely write.
+ * <p>
+ * Only sessions are shared. Per-chat ordering and update deduplication stay within one process,
+ * and every replica serving the webhook has to accept the same secret, so the store refuses to
+ * start in webhook mode without a configured {@code telegram.bot.webhook-secret}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "telegram.bot.sessions", name = "store", havingValue = "sqlite")
+public class SqliteSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SqliteSessionStore.class);
+    private static final Duration TOUCH_INTERVAL = Duration.ofMinutes(1);
+    private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+
+    private static final String[] SCHEMA = {
+        """
+        CREATE TABLE IF NOT EXISTS sessions (
+            chat_id TEXT PRIMARY KEY,
+            exercise_count INTEGER NOT NULL,
+            last_access INTEGER NOT NULL)""",
+        "CREATE INDEX IF NOT EXISTS sessions_last_access ON sessions (last_access)",
+        """
+        CREATE TABLE IF NOT EXISTS session_exercises (
+            chat_id TEXT NOT NULL REFERENCES sessions (chat_id) ON DELETE CASCADE,
+            number INTEGER NOT NULL,
+            row_number INTEGER NOT NULL,
+            name TEXT, weight TEXT, sets TEXT, repetitions TEXT,
+            reserve TEXT, rest TEXT, video_link TEXT, comment TEXT,
+            PRIMARY KEY (chat_id, number)) WITHOUT ROWID""",
+        """
+        CREATE TABLE IF NOT EXISTS session_messages (
+            chat_id TEXT NOT NULL REFERENCES sessions (chat_id) ON DELETE CASCADE,
+            message_id INTEGER NOT NULL,
+            exercise_number INTEGER NOT NULL,
+            PRIMARY KEY (chat_id, message_id)) WITHOUT ROWID""",
+        """
+        CREATE TABLE IF NOT EXISTS session_completed (
+            chat_id TEXT NOT NULL REFERENCES sessions (chat_id) ON DELETE CASCADE,
+            exercise_number INTEGER NOT NULL,
+            PRIMARY KEY (chat_id, exercise_number)) WITHOUT ROWID""",
+        """
+        CREATE TABLE IF NOT EXISTS chats (
+            username TEXT PRIMARY KEY,
+            chat_id TEXT NOT NULL) WITHOUT ROWID"""
+    };
+
+    private final TelegramBotProperties.Sessions settings;
+    private final Connection connection;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, String> knownChats = new ConcurrentHashMap<>();
+
+    public SqliteSessionStore(TelegramBotProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getMode() == TelegramBotProperties.Mode.WEBHOOK && !properties.isWebhookSecretConfigured()) {
+            throw new IllegalStateException("The shared SQLite session store needs TELEGRAM_BOT_WEBHOOK_SECRET, "
+                + "so that every replica accepts the updates Telegram sends with the registered secret");
+        }
+        this.settings = properties.getSessions();
+        this.connection = open(Path.of(settings.getSqlitePath()));
+        Gauge.builder("fitness.sessions.active", this, SqliteSessionStore::getActiveSessionCount)
+            .description("Chat sessions held in the shared session store")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void close() {
+        lock.lock();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            log.warn("Unable to close session database", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void startSession(String chatId, List<Exercise> exercises) {
+        long now = System.currentTimeMillis();
+        inTransaction(() -> {
+            update("DELETE FROM sessions WHERE chat_id = ?", chatId);
+            update("INSERT INTO sessions (chat_id, exercise_count, last_access) VALUES (?, ?, ?)",
+                chatId, exercises.size(), now);
+            try (PreparedStatement insert = connection.prepareStatement("""
+                INSERT INTO session_exercises (chat_id, number, row_number, name, weight, sets, repetitions,
+                                               reserve, rest, video_link, comment)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""")) {
+                int number = 1;
+                for (Exercise exercise : exercises) {
+                    bind(insert, chatId, number++, exercise.rowNumber(), exercise.name(), exercise.weight(),
+                        exercise.sets(), exercise.repetitions(), exercise.reserve(), exercise.rest(),
+                        exercise.videoLink(), exercise.comment());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            evictIdleSessions(now);
+            return null;
+        });
+    }
+
+    @Override
+    public void linkMessage(String chatId, int messageId, int exerciseNumber) {
+        long now = System.currentTimeMillis();
+        inTransaction(() -> {
+            if (touchIfActive(chatId, now)) {
+                update("INSERT OR REPLACE INTO session_messages (chat_id, message_id, exercise_number) VALUES (?, ?, ?)",
+                    chatId, messageId, exerciseNumber);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Exercise> findExercise(String chatId, int exerciseNumber) {
+        long now = System.currentTimeMillis();
+        return withConnection(() -> {
+            try (PreparedStatement select = connection.prepareStatement("""
+                SELECT s.last_access, e.row_number, e.name, e.weight, e.sets, e.repetitions,
+                       e.reserve, e.rest, e.video_link, e.comment
+                FROM sessions s JOIN session_exercises e ON e.chat_id = s.chat_id
+                WHERE s.chat_id = ? AND e.number = ?""")) {
+                bind(select, chatId, exerciseNumber);
+                try (ResultSet row = select.executeQuery()) {
+                    if (!row.next() || isExpired(row.getLong(1), now)) {
+                        return Optional.empty();
+                    }
+                    Exercise exercise = new Exercise(row.getInt(2), row.getString(3), row.getString(4),
+                        row.getString(5), row.getString(6), row.getString(7), row.getString(8),
+                        row.getString(9), row.getString(10));
+                    touchIfStale(chatId, row.getLong(1), now);
+                    return Optional.of(exercise);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int exerciseNumberForMessage(String chatId, int messageId) {
+        long now = System.currentTimeMillis();
+        return withConnection(() -> {
+            try (PreparedStatement select = connection.prepareStatement("""
+                SELECT s.last_access, m.exercise_number
+                FROM sessions s JOIN session_messages m ON m.chat_id = s.chat_id
+                WHERE s.chat_id = ? AND m.message_id = ?""")) {
+                bind(select, chatId, messageId);
+                try (ResultSet row = select.executeQuery()) {
+                    if (!row.next() || isExpired(row.getLong(1), now)) {
+                        return 0;
+                    }
+                    int exerciseNumber = row.getInt(2);
+                    touchIfStale(chatId, row.getLong(1), now);
+                    return exerciseNumber;
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean markCompleted(String chatId, int exerciseNumber) {
+        long now = System.currentTimeMillis();
+        return inTransaction(() -> {
+            if (!touchIfActive(chatId, now)) {
+                return false;
+            }
+            int inserted = update("INSERT OR IGNORE INTO session_completed (chat_id, exercise_number) VALUES (?, ?)",
+                chatId, exerciseNumber);
+            if (inserted == 0) {
+                return false;
+            }
+            try (PreparedStatement select = connection.prepareStatement("""
+                SELECT s.exercise_count, (SELECT COUNT(*) FROM session_completed c WHERE c.chat_id = s.chat_id)
+                FROM sessions s WHERE s.chat_id = ?""")) {
+                bind(select, chatId);
+                try (ResultSet row = select.executeQuery()) {
+                    return row.next() && row.getInt(1) > 0 && row.getInt(2) >= row.getInt(1);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void rememberChat(String username, String chatId) {
+        if (username == null || chatId.equals(knownChats.get(username))) {
+            return;
+        }
+        withConnection(() -> update("INSERT OR REPLACE INTO chats (username, chat_id) VALUES (?, ?)", username, chatId));
+        knownChats.put(username, chatId);
+    }
+
+    @Override
+    public Optional<String> findChatId(String username) {
+        return withConnection(() -> {
+            try (PreparedStatement select = connection.prepareStatement("SELECT chat_id FROM chats WHERE username = ?")) {
+                bind(select, username);
+                try (ResultSet row = select.executeQuery()) {
+                    return row.next() ? Optional.of(row.getString(1)) : Optional.empty();
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getActiveSessionCount() {
+        return withConnection(() -> {
+            try (Statement select = connection.createStatement();
+                 ResultSet row = select.executeQuery("SELECT COUNT(*) FROM sessions")) {
+                return row.next() ? row.getInt(1) : 0;
+            }
+        });
+    }
+
+    /**
+     * Refreshes the last access time of an unexpired session. Must run inside a transaction.
+     */
+    private boolean touchIfActive(String chatId, long now) throws SQLException {
+        long ttl = settings.getTtl().toMillis();
+        long oldestActive = ttl > 0 ? now - ttl : Long.MIN_VALUE;
+        return update("UPDATE sessions SET last_access = ? WHERE chat_id = ? AND last_access >= ?",
+            now, chatId, oldestActive) > 0;
+    }
+
+    private void touchIfStale(String chatId, long lastAccess, long now) throws SQLException {
+        if (now - lastAccess > TOUCH_INTERVAL.toMillis()) {
+            update("UPDATE sessions SET last_access = ? WHERE chat_id = ? AND last_access < ?", now, chatId, now);
+        }
+    }
+
+    private void evictIdleSessions(long now) throws SQLException {
+        long ttl = settings.getTtl().toMillis();
+        if (ttl > 0) {
+            update("DELETE FROM sessions WHERE last_access < ?", now - ttl);
+        }
+        update("""
+            DELETE FROM sessions WHERE chat_id IN (
+                SELECT chat_id FROM sessions ORDER BY last_access DESC LIMIT -1 OFFSET ?)""",
+            Math.max(1, settings.getMaxSessions()));
+    }
+
+    private boolean isExpired(long lastAccess, long now) {
+        long ttl = settings.getTtl().toMillis();
+        return ttl > 0 && now - lastAccess > ttl;
+    }
+
+    private int update(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            bind(statement, parameters);
+            return statement.executeUpdate();
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+
+    private <T> T inTransaction(SqlWork<T> work) {
+        return withConnection(() -> {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    private <T> T withConnection(SqlWork<T> work) {
+        lock.lock();
+        try {
+            return work.run();
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Session database operation failed", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Connection open(Path database) {
+        try {
+            Path parent = database.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            SQLiteConfig config = new SQLiteConfig();
+            config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+            config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+            config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+            config.enforceForeignKeys(true);
+            Connection connection = config.createConnection("jdbc:sqlite:" + database);
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            log.info("Using shared session database {}", database.toAbsolutePath());
+            return connection;
+        } catch (IOException | SQLException ex) {
+            throw new IllegalStateException("Unable to open session database " + database, ex);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+}
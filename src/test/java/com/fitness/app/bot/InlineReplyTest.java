@@ -0,0 +1,79 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.bot.InlineReply.SendMessageMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InlineReplyTest {
+
+    @Test
+    void firstOfferIsReturnedInline() {
+        InlineReply reply = new InlineReply();
+
+        assertThat(reply.offerMessage("42", "Сохранено")).isTrue();
+        assertThat(reply.offerMessage("42", "Тренировка закончена!")).isFalse();
+        reply.close();
+
+        assertThat(reply.response()).isCompletedWithValue(new SendMessageMethod("sendMessage", "42", "Сохранено"));
+    }
+
+    @Test
+    void offerAfterCloseIsRejected() {
+        InlineReply reply = new InlineReply();
+
+        reply.close();
+
+        assertThat(reply.offerMessage("42", "Сохранено")).isFalse();
+        assertThat(reply.response()).isCompletedWithValue(null);
+    }
+
+    @Test
+    void noneIsClosed() {
+        assertThat(InlineReply.NONE.offerMessage("42", "Сохранено")).isFalse();
+        assertThat(InlineReply.NONE.response()).isCompletedWithValue(null);
+    }
+
+    @Test
+    void exactlyOneOfConcurrentOfferAndCloseWins() throws Exception {
+        for (int i = 0; i < 1_000; i++) {
+            InlineReply reply = new InlineReply();
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Boolean>> racers = new ArrayList<>();
+            racers.add(race(start, () -> reply.offerMessage("42", "Сохранено")));
+            racers.add(race(start, () -> {
+                reply.close();
+                return false;
+            }));
+
+            start.countDown();
+            boolean offered = racers.get(0).get(5, TimeUnit.SECONDS);
+            racers.get(1).get(5, TimeUnit.SECONDS);
+
+            SendMessageMethod inline = reply.response().get(5, TimeUnit.SECONDS);
+            if (offered) {
+                assertThat(inline).isNotNull();
+            } else {
+                assertThat(inline).isNull();
+            }
+        }
+    }
+
+    private static CompletableFuture<Boolean> race(CountDownLatch start, Supplier<Boolean> action) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return action.get();
+        }, runnable -> Thread.ofVirtual().start(runnable));
+    }
+}
@@ -0,0 +1,110 @@
+package com.fitness.app.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyedSerialExecutorTest {
+
+    private final KeyedSerialExecutor executor = new KeyedSerialExecutor("test-");
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void runsTasksOfOneKeyInSubmissionOrder() throws Exception {
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 0; i < 100; i++) {
+            int number = i;
+            executor.execute("42", () -> executed.add(number));
+        }
+        executor.execute("42", done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executed).containsExactlyElementsOf(IntStream.range(0, 100).boxed().toList());
+    }
+
+    @Test
+    void runsDifferentKeysInParallel() throws Exception {
+        CountDownLatch otherKeyRan = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute("42", () -> {
+            if (await(otherKeyRan)) {
+                done.countDown();
+            }
+        });
+        executor.execute("43", otherKeyRan::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void keepsRunningKeyAfterFailedTask() throws Exception {
+        CountDownLatch done = new CountDownLatch(2);
+
+        executor.execute("42", () -> {
+            throw new IllegalStateException("Google is down");
+        });
+        executor.execute("42", done::countDown);
+        executor.execute("42", () -> {
+            throw new StackOverflowError();
+        });
+        executor.execute("42", done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(awaitIdle()).isTrue();
+        assertThat(executor.queuedTasks()).isZero();
+    }
+
+    @Test
+    void tracksQueuedTasksAndActiveKeys() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute("42", () -> await(release));
+        executor.execute("42", () -> { });
+
+        assertThat(executor.queuedTasks()).isEqualTo(2);
+        assertThat(executor.activeKeys()).isEqualTo(1);
+        assertThat(executor.isActive("42")).isTrue();
+        assertThat(executor.isActive("43")).isFalse();
+
+        release.countDown();
+
+        assertThat(awaitIdle()).isTrue();
+        assertThat(executor.queuedTasks()).isZero();
+        assertThat(executor.isActive("42")).isFalse();
+    }
+
+    private boolean awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (executor.activeKeys() == 0) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return false;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenderedPlanCacheTest {
+
+    private final RenderedPlanCache cache = new RenderedPlanCache();
+
+    @Test
+    void rendersMessagesInExerciseOrder() {
+        List<String> messages = cache.messages("sheet", List.of(exercise("Squat"), exercise("Bench press")));
+
+        assertThat(messages).hasSize(2);
+        assertThat(messages.get(0)).startsWith("Упражнение 1: Squat");
+        assertThat(messages.get(1)).startsWith("Упражнение 2: Bench press");
+        assertThat(cache.renders()).isEqualTo(1);
+    }
+
+    @Test
+    void reusesMessagesOfSamePlan() {
+        List<Exercise> plan = List.of(exercise("Squat"));
+        List<String> first = cache.messages("sheet", plan);
+
+        assertThat(cache.messages("sheet", plan)).isSameAs(first);
+        assertThat(cache.messages("sheet", new ArrayList<>(plan))).isSameAs(first);
+        assertThat(cache.hits()).isEqualTo(2);
+        assertThat(cache.renders()).isEqualTo(1);
+    }
+
+    @Test
+    void rendersAgainAfterSheetEdit() {
+        cache.messages("sheet", List.of(exercise("Squat")));
+
+        List<String> edited = cache.messages("sheet", List.of(exercise("Front squat")));
+
+        assertThat(edited.get(0)).startsWith("Упражнение 1: Front squat");
+        assertThat(cache.renders()).isEqualTo(2);
+        assertThat(cache.hits()).isZero();
+    }
+
+    @Test
+    void keepsPlansOfSpreadsheetsApart() {
+        List<Exercise> plan = List.of(exercise("Squat"));
+        cache.messages("first", plan);
+        cache.messages("second", List.of(exercise("Lunge")));
+
+        cache.messages("first", plan);
+
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.renders()).isEqualTo(2);
+    }
+
+    private static Exercise exercise(String name) {
+        return new Exercise(3, name, "60", "3", "8", "2", "90", "", "");
+    }
+}
@@ -0,0 +1,51 @@
+package com.fitness.app.bot;
+
+import com.fitness.app.bot.SheetTelegramBot.ExerciseValue;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SheetTelegramBotTest {
+
+    @Test
+    void parsesResultsSeparatedBySemicolons() {
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8; 2:60x10 ;4 : done"))
+            .containsExactly(
+                new ExerciseValue(1, "80x8", null),
+                new ExerciseValue(2, "60x10", null),
+                new ExerciseValue(4, "done", null));
+    }
+
+    @Test
+    void parsesOneResultPerLine() {
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8\n\n2: 60 кг х 8,8,7\r\n3: 12"))
+            .containsExactly(
+                new ExerciseValue(1, "80x8", null),
+                new ExerciseValue(2, "60 кг х 8,8,7", null),
+                new ExerciseValue(3, "12", null));
+    }
+
+    @Test
+    void repeatedExerciseKeepsLastValue() {
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8; 2: 60x10; 1: 85x6"))
+            .containsExactly(
+                new ExerciseValue(2, "60x10", null),
+                new ExerciseValue(1, "85x6", null));
+    }
+
+    @Test
+    void singleEntryNeedsSeparator() {
+        assertThat(SheetTelegramBot.parseExerciseValues("12:45")).isEmpty();
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8")).isEmpty();
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8;"))
+            .containsExactly(new ExerciseValue(1, "80x8", null));
+    }
+
+    @Test
+    void rejectsMessageWithAnyOtherPart() {
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8; felt great")).isEmpty();
+        assertThat(SheetTelegramBot.parseExerciseValues("1: 80x8; 2:")).isEmpty();
+        assertThat(SheetTelegramBot.parseExerciseValues("1000: 80x8; 2: 60x10")).isEmpty();
+        assertThat(SheetTelegramBot.parseExerciseValues("встреча в 12:45; потом 13:30")).isEmpty();
+    }
+}
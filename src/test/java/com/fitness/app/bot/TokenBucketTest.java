@@ -0,0 +1,53 @@
+package com.fitness.app.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void burstIsAvailableImmediately() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.reserve()).isZero();
+        }
+    }
+
+    @Test
+    void reservationsBeyondBurstAreSpacedByRate() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        bucket.reserve();
+
+        long second = bucket.reserve();
+        long third = bucket.reserve();
+
+        assertThat(second).isBetween(TimeUnit.MILLISECONDS.toNanos(90), TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(third).isBetween(TimeUnit.MILLISECONDS.toNanos(190), TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void pauseDelaysEveryReservation() {
+        TokenBucket bucket = new TokenBucket(1000, 5);
+
+        bucket.pause(TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(bucket.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(1900), TimeUnit.SECONDS.toNanos(2));
+        assertThat(bucket.isIdle()).isFalse();
+    }
+
+    @Test
+    void bucketIsIdleOnceRefilled() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 2);
+        assertThat(bucket.isIdle()).isTrue();
+
+        bucket.reserve();
+        assertThat(bucket.isIdle()).isFalse();
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertThat(bucket.isIdle()).isTrue();
+    }
+}
@@ -0,0 +1,108 @@
+package com.fitness.app.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDeduplicatorTest {
+
+    // A window of 128 IDs is used as is; other sizes are rounded up to a power of two.
+    private final UpdateDeduplicator deduplicator = new UpdateDeduplicator(128);
+
+    @Test
+    void reportsRedeliveredUpdate() {
+        assertThat(deduplicator.markFirstSeen(1000)).isTrue();
+        assertThat(deduplicator.markFirstSeen(1000)).isFalse();
+    }
+
+    @Test
+    void acceptsOlderUpdateInsideWindowOnce() {
+        assertThat(deduplicator.markFirstSeen(1000)).isTrue();
+        assertThat(deduplicator.markFirstSeen(990)).isTrue();
+        assertThat(deduplicator.markFirstSeen(990)).isFalse();
+    }
+
+    @Test
+    void reusesSlotOfIdThatLeftWindow() {
+        for (long id = 1000; id < 1128; id++) {
+            assertThat(deduplicator.markFirstSeen(id)).isTrue();
+        }
+
+        // 1128 maps to the slot of 1000, which has to be cleared rather than reported.
+        assertThat(deduplicator.markFirstSeen(1128)).isTrue();
+        assertThat(deduplicator.markFirstSeen(1128)).isFalse();
+        assertThat(deduplicator.markFirstSeen(1001)).isFalse();
+        assertThat(deduplicator.markFirstSeen(1127)).isFalse();
+    }
+
+    @Test
+    void jumpBeyondWindowClearsEverything() {
+        assertThat(deduplicator.markFirstSeen(1000)).isTrue();
+        assertThat(deduplicator.markFirstSeen(1001)).isTrue();
+
+        assertThat(deduplicator.markFirstSeen(1000 + 128 * 3 + 1)).isTrue();
+
+        // Same slot as 1000 and inside the new window.
+        assertThat(deduplicator.markFirstSeen(1000 + 128 * 3)).isTrue();
+    }
+
+    @Test
+    void forgottenUpdateIsAcceptedAgain() {
+        assertThat(deduplicator.markFirstSeen(1000)).isTrue();
+        assertThat(deduplicator.markFirstSeen(1001)).isTrue();
+
+        deduplicator.forget(1000);
+
+        assertThat(deduplicator.markFirstSeen(1000)).isTrue();
+        assertThat(deduplicator.markFirstSeen(1001)).isFalse();
+    }
+
+    @Test
+    void forgetOutsideWindowKeepsRecordedIds() {
+        assertThat(deduplicator.markFirstSeen(1000)).isTrue();
+        assertThat(deduplicator.markFirstSeen(1100)).isTrue();
+
+        // 1228 and 872 share the slots of 1100 and 1000 but are not inside the window.
+        deduplicator.forget(1228);
+        deduplicator.forget(872);
+
+        assertThat(deduplicator.markFirstSeen(1100)).isFalse();
+        assertThat(deduplicator.markFirstSeen(1000)).isFalse();
+    }
+
+    @Test
+    void lateRedeliveryBelowWindowIsDropped() {
+        assertThat(deduplicator.markFirstSeen(1990)).isTrue();
+        assertThat(deduplicator.markFirstSeen(2000)).isTrue();
+
+        assertThat(deduplicator.markFirstSeen(1500)).isFalse();
+
+        // The window is kept, so recent updates are still recognised.
+        assertThat(deduplicator.markFirstSeen(1990)).isFalse();
+        assertThat(deduplicator.markFirstSeen(2000)).isFalse();
+    }
+
+    @Test
+    void idFarBelowWindowStartsNewSequence() {
+        assertThat(deduplicator.markFirstSeen(5_000_000)).isTrue();
+
+        assertThat(deduplicator.markFirstSeen(17)).isTrue();
+        assertThat(deduplicator.markFirstSeen(17)).isFalse();
+        assertThat(deduplicator.markFirstSeen(18)).isTrue();
+    }
+
+    @Test
+    void idBelowWindowAfterLongPauseStartsNewSequence() {
+        AtomicLong clock = new AtomicLong();
+        UpdateDeduplicator idle = new UpdateDeduplicator(128, clock::get);
+        assertThat(idle.markFirstSeen(2000)).isTrue();
+
+        clock.addAndGet(UpdateDeduplicator.SEQUENCE_RESTART_IDLE.toNanos());
+
+        assertThat(idle.markFirstSeen(1500)).isTrue();
+        assertThat(idle.markFirstSeen(1500)).isFalse();
+        assertThat(idle.markFirstSeen(1000)).isFalse();
+    }
+}
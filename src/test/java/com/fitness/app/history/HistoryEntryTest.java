@@ -0,0 +1,71 @@
+package com.fitness.app.history;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HistoryEntryTest {
+
+    @Test
+    void parsesWeightByRepetitions() {
+        HistoryEntry entry = parse("60x8");
+
+        assertThat(entry.weight()).isEqualTo(60.0);
+        assertThat(entry.repetitions()).isEqualTo(8);
+    }
+
+    @Test
+    void parsesWeightWithUnitAndSeveralSets() {
+        HistoryEntry entry = parse("60 кг х 8,8,7");
+
+        assertThat(entry.weight()).isEqualTo(60.0);
+        assertThat(entry.repetitions()).isEqualTo(8);
+    }
+
+    @Test
+    void weightWithUnitWinsOverLeftSideOfPair() {
+        HistoryEntry entry = parse("3x8 62,5KG");
+
+        assertThat(entry.weight()).isEqualTo(62.5);
+        assertThat(entry.repetitions()).isEqualTo(8);
+    }
+
+    @Test
+    void parsesBareRepetitionCount() {
+        HistoryEntry entry = parse(" 12 ");
+
+        assertThat(entry.weight()).isNull();
+        assertThat(entry.repetitions()).isEqualTo(12);
+    }
+
+    @Test
+    void keepsFreeTextWithoutNumbers() {
+        HistoryEntry entry = parse("done");
+
+        assertThat(entry.value()).isEqualTo("done");
+        assertThat(entry.weight()).isNull();
+        assertThat(entry.repetitions()).isNull();
+        assertThat(entry.estimatedOneRepMax()).isNull();
+    }
+
+    @Test
+    void acceptsMissingValue() {
+        HistoryEntry entry = parse(null);
+
+        assertThat(entry.value()).isNull();
+        assertThat(entry.weight()).isNull();
+        assertThat(entry.repetitions()).isNull();
+    }
+
+    @Test
+    void estimatesOneRepMax() {
+        assertThat(parse("100x10").estimatedOneRepMax()).isCloseTo(133.33, within(0.01));
+        assertThat(parse("100x1").estimatedOneRepMax()).isEqualTo(100.0);
+        assertThat(parse("100x0").estimatedOneRepMax()).isNull();
+    }
+
+    private static HistoryEntry parse(String value) {
+        return HistoryEntry.parse(0, "Day 1", "Squat", value);
+    }
+}
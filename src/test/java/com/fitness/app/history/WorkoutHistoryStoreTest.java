@@ -0,0 +1,72 @@
+package com.fitness.app.history;
+
+import com.fitness.app.config.HistoryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkoutHistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private HistoryProperties properties;
+    private WorkoutHistoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new HistoryProperties();
+        properties.setEnabled(true);
+        properties.setPath(directory.resolve("history.log").toString());
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void correctedResultReplacesTodaysEntry() {
+        store.record("sheet", "Squat", "60x8");
+        store.record("sheet", "squat ", "65x8");
+
+        ProgressReport report = store.progress("sheet", "Squat").orElseThrow();
+        assertThat(report.entries()).isEqualTo(1);
+        assertThat(report.latest().value()).isEqualTo("65x8");
+        assertThat(store.stats().entries()).isEqualTo(1);
+    }
+
+    @Test
+    void replayKeepsLatestCorrection() {
+        store.record("sheet", "Squat", "60x8");
+        store.record("sheet", "Squat", "65x8");
+        store.record("sheet", "Bench press", "40x10");
+        store.close();
+
+        store = open();
+
+        assertThat(store.progress("sheet", "Squat").orElseThrow().latest().value()).isEqualTo("65x8");
+        assertThat(store.stats().entries()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsResultsOfOtherClients() {
+        store.record("sheet", "Squat", "60x8");
+        store.record("other", "Squat", "80x5");
+
+        assertThat(store.progress("sheet", "Squat").orElseThrow().entries()).isEqualTo(1);
+        assertThat(store.progress("other", "Squat").orElseThrow().entries()).isEqualTo(1);
+    }
+
+    private WorkoutHistoryStore open() {
+        WorkoutHistoryStore opened = new WorkoutHistoryStore(properties);
+        opened.open();
+        return opened;
+    }
+}
@@ -0,0 +1,67 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GoogleCircuitBreakersTest {
+
+    private final GoogleCircuitBreakers breakers = new GoogleCircuitBreakers(new GoogleSheetsProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void rateLimitAnswersKeepBreakerClosed() {
+        failRepeatedly(breakers.read(), clientError(HttpStatus.TOO_MANY_REQUESTS, ""));
+
+        assertThat(breakers.read().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void quotaErrorsInBodyKeepBreakerClosed() {
+        failRepeatedly(breakers.write(), clientError(HttpStatus.FORBIDDEN,
+            "{\"error\":{\"status\":\"RESOURCE_EXHAUSTED\"}}"));
+
+        assertThat(breakers.write().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void permanentClientErrorsKeepBreakerClosed() {
+        failRepeatedly(breakers.read(), clientError(HttpStatus.NOT_FOUND, ""));
+
+        assertThat(breakers.read().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void serverErrorsOpenBreaker() {
+        failRepeatedly(breakers.read(), HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE,
+            "Service Unavailable", HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8));
+
+        assertThat(breakers.read().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private static void failRepeatedly(CircuitBreaker breaker, HttpStatusCodeException error) {
+        for (int i = 0; i < 20; i++) {
+            try {
+                breaker.executeSupplier(() -> {
+                    throw error;
+                });
+            } catch (RuntimeException ignored) {
+                // The error itself, or CallNotPermittedException once the breaker is open.
+            }
+        }
+    }
+
+    private static HttpClientErrorException clientError(HttpStatus status, String body) {
+        return HttpClientErrorException.create(status, status.getReasonPhrase(), HttpHeaders.EMPTY,
+            body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import com.fitness.app.metrics.StageMetrics;
+import com.fitness.app.service.GoogleRequestScheduler.CellValue;
+import com.fitness.app.service.GoogleRequestScheduler.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoogleRequestSchedulerTest {
+
+    private static final String SHEET = "sheet";
+
+    private final List<Map<Integer, String>> written = new CopyOnWriteArrayList<>();
+    private MeterRegistry registry;
+    private GoogleRequestScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        GoogleSheetsProperties properties = new GoogleSheetsProperties();
+        // One token a second and no burst, so a write started right after another waits for
+        // quota long enough for later writes to join it.
+        properties.getQuota().setWritesPerMinute(60);
+        properties.getQuota().setBurst(1);
+        properties.getQuota().setMaxWait(Duration.ofSeconds(5));
+        registry = new SimpleMeterRegistry();
+        scheduler = new GoogleRequestScheduler(properties,
+            new GoogleCircuitBreakers(properties, registry), new StageMetrics(registry));
+        scheduler.write(SHEET, Map.of(1, new CellValue("first", 1)), Priority.BACKGROUND, recordingWriter());
+        written.clear();
+    }
+
+    @Test
+    void writeJoinsBatchWaitingForQuota() throws Exception {
+        CompletableFuture<Void> leader = writeAsync(Map.of(2, new CellValue("80x8", 2)), Priority.BACKGROUND, recordingWriter());
+        TimeUnit.MILLISECONDS.sleep(200);
+        CompletableFuture<Void> joined = writeAsync(Map.of(3, new CellValue("60x10", 3)), Priority.BACKGROUND,
+            (spreadsheetId, valuesByRow) -> {
+                throw new AssertionError("A joined write must not call its own writer");
+            });
+
+        leader.get(5, TimeUnit.SECONDS);
+        joined.get(5, TimeUnit.SECONDS);
+
+        assertThat(written).containsExactly(Map.of(2, "80x8", 3, "60x10"));
+        assertThat(registry.counter("fitness.google.writes.coalesced").count()).isEqualTo(1);
+    }
+
+    @Test
+    void joinedValueWithLowerSequenceDoesNotReplaceNewerOne() throws Exception {
+        CompletableFuture<Void> leader = writeAsync(Map.of(2, new CellValue("newer", 5)), Priority.BACKGROUND, recordingWriter());
+        TimeUnit.MILLISECONDS.sleep(200);
+        CompletableFuture<Void> joined = writeAsync(Map.of(2, new CellValue("older", 4)), Priority.BACKGROUND, recordingWriter());
+
+        leader.get(5, TimeUnit.SECONDS);
+        joined.get(5, TimeUnit.SECONDS);
+
+        assertThat(written).containsExactly(Map.of(2, "newer"));
+    }
+
+    @Test
+    void leaderFailureFailsJoinedWrites() throws Exception {
+        CompletableFuture<Void> leader = writeAsync(Map.of(2, new CellValue("80x8", 2)), Priority.BACKGROUND,
+            (spreadsheetId, valuesByRow) -> {
+                throw new IllegalStateException("sheet deleted");
+            });
+        TimeUnit.MILLISECONDS.sleep(200);
+        CompletableFuture<Void> joined = writeAsync(Map.of(3, new CellValue("60x10", 3)), Priority.BACKGROUND, recordingWriter());
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseMessage("sheet deleted");
+        assertThatThrownBy(() -> joined.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseMessage("sheet deleted");
+
+        // The failed batch is no longer pending, so the next write starts a batch of its own.
+        scheduler.write(SHEET, Map.of(4, new CellValue("done", 4)), Priority.BACKGROUND, recordingWriter());
+        assertThat(written).containsExactly(Map.of(4, "done"));
+    }
+
+    @Test
+    void writesOfDifferentPrioritiesAreNotMerged() throws Exception {
+        CompletableFuture<Void> background = writeAsync(Map.of(2, new CellValue("80x8", 2)), Priority.BACKGROUND, recordingWriter());
+        TimeUnit.MILLISECONDS.sleep(200);
+        CompletableFuture<Void> interactive = writeAsync(Map.of(3, new CellValue("60x10", 3)), Priority.INTERACTIVE, recordingWriter());
+
+        interactive.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+
+        assertThat(written).containsExactly(Map.of(3, "60x10"), Map.of(2, "80x8"));
+        assertThat(registry.counter("fitness.google.writes.coalesced").count()).isZero();
+    }
+
+    private CompletableFuture<Void> writeAsync(Map<Integer, CellValue> values, Priority priority,
+                                               GoogleRequestScheduler.BatchWriter writer) {
+        return CompletableFuture.runAsync(() -> scheduler.write(SHEET, values, priority, writer),
+            runnable -> Thread.ofVirtual().start(runnable));
+    }
+
+    private GoogleRequestScheduler.BatchWriter recordingWriter() {
+        return (spreadsheetId, valuesByRow) -> written.add(Map.copyOf(valuesByRow));
+    }
+}
@@ -0,0 +1,92 @@
+package com.fitness.app.service;
+
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GoogleSheetsServiceTest {
+
+    @Test
+    void parsesExercisesFromThirdRow() throws IOException {
+        String csv = """
+            "Client","","Exercise","Weight"
+            "","","Ignored","1"
+            "","","Squat","60","3","8","2","90","https://video","Keep the back straight"
+            "","","","","","","","","",""
+            "","","Bench press","40","4","10"
+            """;
+
+        List<Exercise> exercises = GoogleSheetsService.parseExercises(new StringReader(csv));
+
+        assertThat(exercises).containsExactly(
+            new Exercise(3, "Squat", "60", "3", "8", "2", "90", "https://video", "Keep the back straight"),
+            new Exercise(5, "Bench press", "40", "4", "10", "", "", "", ""));
+    }
+
+    @Test
+    void keepsRowNumbersOfMultilineCells() throws IOException {
+        String csv = """
+            "","","Exercise"
+            "","",""
+            "","","Squat","60","3","8","2","90","","first line
+            second line"
+            "","","Lunge"
+            """;
+
+        List<Exercise> exercises = GoogleSheetsService.parseExercises(new StringReader(csv));
+
+        assertThat(exercises).extracting(Exercise::rowNumber).containsExactly(3, 4);
+        assertThat(exercises.get(0).comment()).isEqualTo("first line\nsecond line");
+    }
+
+    @Test
+    void streamsLargeWorksheet() throws IOException {
+        int rows = 20_000;
+
+        List<Exercise> exercises = GoogleSheetsService.parseExercises(new GeneratedCsv(rows));
+
+        assertThat(exercises).hasSize(rows - GoogleSheetsService.FIRST_EXERCISE_ROW + 1);
+        assertThat(exercises.get(exercises.size() - 1).name()).isEqualTo("Exercise " + rows);
+    }
+
+    /**
+     * Produces worksheet rows on demand, so the whole payload never exists as one string.
+     */
+    private static final class GeneratedCsv extends Reader {
+        private final int rows;
+        private int row;
+        private String current = "";
+        private int position;
+
+        private GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == current.length()) {
+                if (row == rows) {
+                    return -1;
+                }
+                row++;
+                current = "\"\",\"\",\"Exercise " + row + "\",\"60\",\"3\",\"8\",\"2\",\"90\",\"\",\"\","
+                    + "\"" + "x".repeat(200) + "\"\n";
+                position = 0;
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
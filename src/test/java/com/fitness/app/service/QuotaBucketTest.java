@@ -0,0 +1,88 @@
+package com.fitness.app.service;
+
+import com.fitness.app.config.GoogleSheetsProperties;
+import com.fitness.app.service.GoogleRequestScheduler.Priority;
+import com.fitness.app.service.GoogleRequestScheduler.QuotaBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuotaBucketTest {
+
+    @Test
+    void grantsBurstImmediatelyThenWaitsForRefill() {
+        QuotaBucket bucket = bucket(60, 3);
+
+        for (int i = 0; i < 3; i++) {
+            bucket.acquire(Priority.INTERACTIVE, Duration.ofMillis(10));
+        }
+
+        assertThat(bucket.available()).isZero();
+        assertThatThrownBy(() -> bucket.acquire(Priority.INTERACTIVE, Duration.ofMillis(50)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("quota exhausted");
+    }
+
+    @Test
+    void quotaErrorHalvesRateAndSuccessRestoresIt() {
+        QuotaBucket bucket = bucket(60, 3);
+
+        Duration pause = bucket.onQuotaExceeded();
+
+        assertThat(pause).isBetween(Duration.ofMillis(500), Duration.ofMillis(1500));
+        assertThat(bucket.currentPerMinute()).isEqualTo(30.0);
+        assertThat(bucket.available()).isZero();
+        for (int i = 0; i < 20; i++) {
+            bucket.onSuccess();
+        }
+        assertThat(bucket.currentPerMinute()).isEqualTo(60.0);
+    }
+
+    @Test
+    void rateNeverDropsBelowMinimum() {
+        QuotaBucket bucket = bucket(60, 3);
+
+        for (int i = 0; i < 10; i++) {
+            bucket.onQuotaExceeded();
+        }
+
+        assertThat(bucket.currentPerMinute()).isCloseTo(6.0, within(1e-9));
+    }
+
+    @Test
+    void interactiveWaiterGoesAheadOfBackground() throws Exception {
+        QuotaBucket bucket = bucket(60, 1);
+        bucket.acquire(Priority.BACKGROUND, null);
+        List<Priority> order = new CopyOnWriteArrayList<>();
+
+        Thread background = Thread.ofVirtual().start(() -> {
+            bucket.acquire(Priority.BACKGROUND, null);
+            order.add(Priority.BACKGROUND);
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+        Thread interactive = Thread.ofVirtual().start(() -> {
+            bucket.acquire(Priority.INTERACTIVE, Duration.ofSeconds(5));
+            order.add(Priority.INTERACTIVE);
+        });
+
+        assertThat(interactive.join(Duration.ofSeconds(5))).isTrue();
+        assertThat(background.join(Duration.ofSeconds(5))).isTrue();
+        assertThat(order).containsExactly(Priority.INTERACTIVE, Priority.BACKGROUND);
+    }
+
+    private static QuotaBucket bucket(int perMinute, int burst) {
+        GoogleSheetsProperties.Quota settings = new GoogleSheetsProperties().getQuota();
+        settings.setBurst(burst);
+        settings.setInitialBackoff(Duration.ofSeconds(1));
+        settings.setMaxBackoff(Duration.ofSeconds(32));
+        return new QuotaBucket("write", perMinute, settings, new SimpleMeterRegistry());
+    }
+}
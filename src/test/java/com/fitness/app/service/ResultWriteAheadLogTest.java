@@ -0,0 +1,82 @@
+package com.fitness.app.service;
+
+import com.fitness.app.service.ResultWriteAheadLog.PendingResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultWriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void startsEmptyWithoutLogFile() throws IOException {
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(directory.resolve("nested/pending.log"))) {
+            assertThat(log.open()).isEmpty();
+        }
+        assertThat(directory.resolve("nested/pending.log")).exists();
+    }
+
+    @Test
+    void replaysAppendedRecordsInOrder() throws IOException {
+        Path path = directory.resolve("pending.log");
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(path)) {
+            log.open();
+            log.append(new PendingResult("sheet-a", 5, "80x8", 1));
+            log.append(new PendingResult("sheet-b", 7, "60 кг\tх 8\n8", 2));
+            log.append(new PendingResult("sheet-a", 5, "85x6", 3));
+        }
+
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(path)) {
+            // Sequences are not logged; replayed records lose against anything accepted later.
+            assertThat(log.open()).containsExactly(
+                new PendingResult("sheet-a", 5, "80x8", 0),
+                new PendingResult("sheet-b", 7, "60 кг\tх 8\n8", 0),
+                new PendingResult("sheet-a", 5, "85x6", 0));
+        }
+    }
+
+    @Test
+    void rewriteKeepsOnlyGivenRecordsAndAppendsAfterThem() throws IOException {
+        Path path = directory.resolve("pending.log");
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(path)) {
+            log.open();
+            log.append(new PendingResult("sheet-a", 5, "80x8", 1));
+            log.append(new PendingResult("sheet-b", 7, "60x10", 2));
+
+            log.rewrite(List.of(new PendingResult("sheet-b", 7, "60x10", 2)));
+            log.append(new PendingResult("sheet-a", 9, "done", 3));
+        }
+
+        assertThat(path.resolveSibling("pending.log.tmp")).doesNotExist();
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(path)) {
+            assertThat(log.open()).containsExactly(
+                new PendingResult("sheet-b", 7, "60x10", 0),
+                new PendingResult("sheet-a", 9, "done", 0));
+        }
+    }
+
+    @Test
+    void skipsCorruptedRecords() throws IOException {
+        Path path = directory.resolve("pending.log");
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(path)) {
+            log.open();
+            log.append(new PendingResult("sheet-a", 5, "80x8", 1));
+        }
+        Files.writeString(path, "sheet-a\tfive\tODB4OA==\nsheet-a\t6\n\nsheet-a\t7\tnot base64!\n",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (ResultWriteAheadLog log = new ResultWriteAheadLog(path)) {
+            assertThat(log.open()).containsExactly(new PendingResult("sheet-a", 5, "80x8", 0));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.fitness.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorksheetCacheTest {
+
+    private static final Duration TTL = Duration.ofMillis(50);
+
+    private final WorksheetCache<String> cache = new WorksheetCache<>(TTL, 10);
+
+    @Test
+    void expiredEntryIsLoadedAgain() throws Exception {
+        assertThat(cache.get("sheet", "0", () -> "v1")).isEqualTo("v1");
+        TimeUnit.MILLISECONDS.sleep(TTL.toMillis() * 2);
+
+        assertThat(cache.get("sheet", "0", () -> "v2")).isEqualTo("v2");
+    }
+
+    @Test
+    void concurrentLookupsShareOneLoad() throws Exception {
+        WorksheetCache<String> longLived = new WorksheetCache<>(Duration.ofMinutes(1), 10);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<CompletableFuture<String>> lookups = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            lookups.add(CompletableFuture.supplyAsync(() -> longLived.get("sheet", "0", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "plan";
+            }), runnable -> Thread.ofVirtual().start(runnable)));
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+
+        for (CompletableFuture<String> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).isEqualTo("plan");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(longLived.stats().misses()).isEqualTo(1);
+        assertThat(longLived.stats().hits()).isEqualTo(7);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> cache.get("sheet", "0", () -> {
+            throw new IllegalStateException("Google is down");
+        })).hasMessage("Google is down");
+
+        assertThat(cache.get("sheet", "0", () -> "plan")).isEqualTo("plan");
+    }
+
+    @Test
+    void loaderErrorReleasesEntry() {
+        assertThatThrownBy(() -> cache.get("sheet", "0", () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(cache.get("sheet", "0", () -> "plan")).isEqualTo("plan");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        WorksheetCache<String> small = new WorksheetCache<>(Duration.ofMinutes(1), 2);
+        small.get("a", "0", () -> "a1");
+        small.get("b", "0", () -> "b1");
+        small.get("a", "0", () -> "a2");
+
+        small.get("c", "0", () -> "c1");
+
+        assertThat(small.get("a", "0", () -> "a3")).isEqualTo("a1");
+        assertThat(small.get("b", "0", () -> "b2")).isEqualTo("b2");
+    }
+
+    @Test
+    void refreshedEntryIsServedStaleWhileReloading() throws Exception {
+        cache.refresh("sheet", "0", () -> "prefetched", Duration.ofMinutes(1));
+        TimeUnit.MILLISECONDS.sleep(TTL.toMillis() * 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reloads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.get("sheet", "0", () -> {
+                reloads.incrementAndGet();
+                await(release);
+                return "edited";
+            })).isEqualTo("prefetched");
+        }
+        release.countDown();
+
+        assertThat(awaitValue("edited")).isTrue();
+        assertThat(reloads).hasValue(1);
+    }
+
+    @Test
+    void failedReloadKeepsServingStaleEntry() throws Exception {
+        cache.refresh("sheet", "0", () -> "prefetched", Duration.ofMinutes(1));
+        TimeUnit.MILLISECONDS.sleep(TTL.toMillis() * 2);
+
+        assertThat(cache.get("sheet", "0", () -> {
+            throw new IllegalStateException("Google is down");
+        })).isEqualTo("prefetched");
+
+        assertThat(awaitValue("recovered")).isTrue();
+    }
+
+    @Test
+    void staleWindowEnds() throws Exception {
+        cache.refresh("sheet", "0", () -> "prefetched", TTL);
+        TimeUnit.MILLISECONDS.sleep(TTL.toMillis() * 2);
+
+        assertThat(cache.get("sheet", "0", () -> "reloaded")).isEqualTo("reloaded");
+    }
+
+    /**
+     * Polls until a lookup returns {@code expected}; lookups in between may still see the stale
+     * value while a reload with the given value runs in the background.
+     */
+    private boolean awaitValue(String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (expected.equals(cache.get("sheet", "0", () -> expected))) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return false;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
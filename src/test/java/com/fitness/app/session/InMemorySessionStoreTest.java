@@ -0,0 +1,121 @@
+package com.fitness.app.session;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySessionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private Path snapshot;
+    private TelegramBotProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = directory.resolve("sessions.bin");
+        properties = new TelegramBotProperties();
+        properties.getSessions().setSnapshotPath(snapshot.toString());
+    }
+
+    @Test
+    void restoresSessionsFromSnapshot() {
+        InMemorySessionStore store = newStore();
+        store.startSession("42", List.of(exercise(10, "Squat"), exercise(11, "Bench press")));
+        store.linkMessage("42", 100, 1);
+        store.linkMessage("42", 101, 2);
+        store.markCompleted("42", 1);
+        store.rememberChat("alice", "42");
+        store.writeSnapshot();
+
+        InMemorySessionStore restored = newStore();
+        restored.restoreSnapshot();
+
+        assertThat(restored.getActiveSessionCount()).isEqualTo(1);
+        assertThat(restored.findExercise("42", 2)).contains(exercise(11, "Bench press"));
+        assertThat(restored.exerciseNumberForMessage("42", 101)).isEqualTo(2);
+        assertThat(restored.markCompleted("42", 1)).isFalse();
+        assertThat(restored.markCompleted("42", 2)).isTrue();
+        assertThat(restored.findChatId("alice")).contains("42");
+    }
+
+    @Test
+    void ignoresTruncatedSnapshot() throws IOException {
+        InMemorySessionStore store = newStore();
+        store.startSession("42", List.of(exercise(10, "Squat"), exercise(11, "Bench press")));
+        store.writeSnapshot();
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length / 2));
+
+        InMemorySessionStore restored = newStore();
+        restored.restoreSnapshot();
+
+        assertThat(restored.getActiveSessionCount()).isZero();
+    }
+
+    @Test
+    void rejectsLengthLargerThanSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x46495453);
+            out.writeInt(2);
+            out.writeInt(1);
+            // Chat ID length no snapshot of this size can hold.
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        Files.write(snapshot, bytes.toByteArray());
+
+        InMemorySessionStore restored = newStore();
+        restored.restoreSnapshot();
+
+        assertThat(restored.getActiveSessionCount()).isZero();
+    }
+
+    @Test
+    void rejectsNegativeCount() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x46495453);
+            out.writeInt(2);
+            out.writeInt(-1);
+        }
+        Files.write(snapshot, bytes.toByteArray());
+
+        InMemorySessionStore restored = newStore();
+        restored.restoreSnapshot();
+
+        assertThat(restored.getActiveSessionCount()).isZero();
+    }
+
+    @Test
+    void ignoresSnapshotOfUnknownFormat() throws IOException {
+        Files.writeString(snapshot, "not a snapshot");
+
+        InMemorySessionStore restored = newStore();
+        restored.restoreSnapshot();
+
+        assertThat(restored.getActiveSessionCount()).isZero();
+    }
+
+    private InMemorySessionStore newStore() {
+        return new InMemorySessionStore(properties, new SimpleMeterRegistry());
+    }
+
+    private static Exercise exercise(int rowNumber, String name) {
+        return new Exercise(rowNumber, name, "60", "3", "8", "2", "90", "", "");
+    }
+}
@@ -0,0 +1,112 @@
+package com.fitness.app.session;
+
+import com.fitness.app.config.TelegramBotProperties;
+import com.fitness.app.service.GoogleSheetsService.Exercise;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqliteSessionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private TelegramBotProperties properties;
+    private final List<SqliteSessionStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new TelegramBotProperties();
+        properties.setMode(TelegramBotProperties.Mode.POLLING);
+        properties.getSessions().setSqlitePath(directory.resolve("sessions.db").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(SqliteSessionStore::close);
+    }
+
+    @Test
+    void sharesSessionsBetweenReplicas() {
+        SqliteSessionStore first = newStore();
+        SqliteSessionStore second = newStore();
+
+        first.startSession("42", List.of(exercise(10, "Squat"), exercise(11, "Bench press")));
+        first.linkMessage("42", 101, 2);
+        first.rememberChat("alice", "42");
+
+        assertThat(second.findExercise("42", 2)).contains(exercise(11, "Bench press"));
+        assertThat(second.exerciseNumberForMessage("42", 101)).isEqualTo(2);
+        assertThat(second.exerciseNumberForMessage("42", 102)).isZero();
+        assertThat(second.findChatId("alice")).contains("42");
+        assertThat(second.getActiveSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reportsFinishedPlanOnceAcrossReplicas() {
+        SqliteSessionStore first = newStore();
+        SqliteSessionStore second = newStore();
+        first.startSession("42", List.of(exercise(10, "Squat"), exercise(11, "Bench press")));
+
+        assertThat(first.markCompleted("42", 1)).isFalse();
+        assertThat(second.markCompleted("42", 1)).isFalse();
+        assertThat(second.markCompleted("42", 2)).isTrue();
+        assertThat(first.markCompleted("42", 2)).isFalse();
+    }
+
+    @Test
+    void newSessionReplacesPreviousOne() {
+        SqliteSessionStore store = newStore();
+        store.startSession("42", List.of(exercise(10, "Squat")));
+        store.linkMessage("42", 101, 1);
+        store.markCompleted("42", 1);
+
+        store.startSession("42", List.of(exercise(20, "Deadlift")));
+
+        assertThat(store.findExercise("42", 1)).contains(exercise(20, "Deadlift"));
+        assertThat(store.exerciseNumberForMessage("42", 101)).isZero();
+        assertThat(store.markCompleted("42", 1)).isTrue();
+    }
+
+    @Test
+    void ignoresChatsWithoutSession() {
+        SqliteSessionStore store = newStore();
+
+        store.linkMessage("42", 101, 1);
+
+        assertThat(store.findExercise("42", 1)).isEmpty();
+        assertThat(store.exerciseNumberForMessage("42", 101)).isZero();
+        assertThat(store.markCompleted("42", 1)).isFalse();
+    }
+
+    @Test
+    void refusesWebhookModeWithoutConfiguredSecret() {
+        properties.setMode(TelegramBotProperties.Mode.WEBHOOK);
+
+        assertThatThrownBy(this::newStore)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("TELEGRAM_BOT_WEBHOOK_SECRET");
+
+        properties.setWebhookSecret("shared-secret");
+        assertThat(newStore().getActiveSessionCount()).isZero();
+    }
+
+    private SqliteSessionStore newStore() {
+        SqliteSessionStore store = new SqliteSessionStore(properties, new SimpleMeterRegistry());
+        stores.add(store);
+        return store;
+    }
+
+    private static Exercise exercise(int rowNumber, String name) {
+        return new Exercise(rowNumber, name, "60", "3", "8", "2", "90", "", "");
+    }
+}